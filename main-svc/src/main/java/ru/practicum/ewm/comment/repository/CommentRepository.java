@@ -2,6 +2,7 @@ package ru.practicum.ewm.comment.repository;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -13,24 +14,28 @@ import java.util.List;
 @Repository
 public interface CommentRepository extends JpaRepository<Comment, Long> {
 
+    @EntityGraph(attributePaths = "author")
     @Query("SELECT c " +
             "FROM Comment c " +
             "WHERE c.author.id = :userId AND c.isHidden = false " +
             "ORDER BY c.created DESC")
     List<Comment> findVisibleCommentsByUser(@Param("userId") Long userId);
 
+    @EntityGraph(attributePaths = "author")
     @Query("SELECT c " +
             "FROM Comment c " +
             "WHERE c.author.id = :userId AND c.event.id = :eventId AND c.isHidden = false " +
             "ORDER BY c.created DESC")
     List<Comment> findVisibleCommentsByUserAndEvent(@Param("userId") Long userId, @Param("eventId") Long eventId);
 
+    @EntityGraph(attributePaths = "author")
     @Query("SELECT c " +
             "FROM Comment c " +
             "WHERE c.event.id = :eventId " +
             "ORDER BY c.created DESC")
     Page<Comment> findAllCommentsByEvent(@Param("eventId") Long eventId, Pageable pageable);
 
+    @EntityGraph(attributePaths = "author")
     @Query("SELECT c " +
             "FROM Comment c " +
             "WHERE c.event.id = :eventId AND c.isHidden = false " +
@@ -8,6 +8,9 @@ import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.JoinTable;
 import jakarta.persistence.ManyToMany;
+import jakarta.persistence.NamedAttributeNode;
+import jakarta.persistence.NamedEntityGraph;
+import jakarta.persistence.NamedSubgraph;
 import jakarta.persistence.Table;
 import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
@@ -28,7 +31,16 @@ import java.util.Set;
 @AllArgsConstructor
 @Table(name = "compilations")
 @FieldDefaults(level = AccessLevel.PRIVATE)
+// подборка вместе с событиями и их категориями и инициаторами одним запросом
+@NamedEntityGraph(name = Compilation.EVENTS_GRAPH,
+        attributeNodes = @NamedAttributeNode(value = "events", subgraph = "events"),
+        subgraphs = @NamedSubgraph(name = "events", attributeNodes = {
+                @NamedAttributeNode("category"),
+                @NamedAttributeNode("initiator")
+        }))
 public class Compilation {
+    public static final String EVENTS_GRAPH = "Compilation.events";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     Long id;
@@ -2,6 +2,7 @@ package ru.practicum.ewm.compilation.repository;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 import ru.practicum.ewm.compilation.model.Compilation;
@@ -10,6 +11,10 @@ import java.util.Optional;
 
 @Repository
 public interface CompilationRepository extends JpaRepository<Compilation, Long> {
+    @Override
+    @EntityGraph(Compilation.EVENTS_GRAPH)
+    Optional<Compilation> findById(Long id);
+
     Page<Compilation> findAllByPinned(Boolean pinned, Pageable pageable);
 
     Optional<Compilation> findByTitle(String title);
@@ -1,11 +1,14 @@
 package ru.practicum.ewm.event.mapper;
 
+import ru.practicum.ewm.category.dto.CategoryDto;
 import ru.practicum.ewm.category.mapper.CategoryMapper;
 import ru.practicum.ewm.event.dto.EventFullDto;
 import ru.practicum.ewm.event.dto.EventShortDto;
 import ru.practicum.ewm.event.dto.NewEventDto;
 import ru.practicum.ewm.event.model.Event;
+import ru.practicum.ewm.event.model.EventShortView;
 import ru.practicum.ewm.location.mapper.LocationMapper;
+import ru.practicum.ewm.user.dto.UserShortDto;
 import ru.practicum.ewm.user.mapper.UserMapper;
 
 import java.time.LocalDateTime;
@@ -21,6 +24,7 @@ public class EventMapper {
         return EventShortDto.builder()
                 .annotation(event.getAnnotation())
                 .category(CategoryMapper.toCategoryDto(event.getCategory()))
+                .confirmedRequests(event.getConfirmedRequests())
                 .eventDate(event.getEventDate())
                 .id(event.getId())
                 .initiator(UserMapper.toUserShortDto(event.getInitiator()))
@@ -29,10 +33,24 @@ public class EventMapper {
                 .build();
     }
 
+    public static EventShortDto toEventShortDto(EventShortView event) {
+        return EventShortDto.builder()
+                .annotation(event.annotation())
+                .category(new CategoryDto(event.categoryId(), event.categoryName()))
+                .confirmedRequests(event.confirmedRequests())
+                .eventDate(event.eventDate())
+                .id(event.id())
+                .initiator(new UserShortDto(event.initiatorId(), event.initiatorName()))
+                .paid(event.paid())
+                .title(event.title())
+                .build();
+    }
+
     public static EventFullDto toEventFullDto(Event event) {
         return EventFullDto.builder()
                 .annotation(event.getAnnotation())
                 .category(CategoryMapper.toCategoryDto(event.getCategory()))
+                .confirmedRequests(event.getConfirmedRequests())
                 .createdOn(event.getCreatedOn())
                 .description(event.getDescription())
                 .eventDate(event.getEventDate())
@@ -53,6 +71,7 @@ public class EventMapper {
 
         return Event.builder()
                 .annotation(newEventDto.getAnnotation())
+                .confirmedRequests(0)
                 .description(newEventDto.getDescription())
                 .eventDate(eventDate)
                 .paid(newEventDto.getPaid() != null ? newEventDto.getPaid() : false)
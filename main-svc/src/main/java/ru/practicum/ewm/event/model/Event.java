@@ -5,11 +5,14 @@ import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.NamedAttributeNode;
+import jakarta.persistence.NamedEntityGraph;
 import jakarta.persistence.Table;
 import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
@@ -23,6 +26,7 @@ import ru.practicum.ewm.location.model.Location;
 import ru.practicum.ewm.user.model.User;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 @Builder
 @Entity
@@ -32,7 +36,22 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 @Table(name = "events")
 @FieldDefaults(level = AccessLevel.PRIVATE)
+// связи из графа загружаются тем же SELECT, что и событие
+@NamedEntityGraph(name = Event.FULL_GRAPH, attributeNodes = {
+        @NamedAttributeNode("category"),
+        @NamedAttributeNode("initiator"),
+        @NamedAttributeNode("location")
+})
+@NamedEntityGraph(name = Event.SHORT_GRAPH, attributeNodes = {
+        @NamedAttributeNode("category"),
+        @NamedAttributeNode("initiator")
+})
 public class Event {
+    public static final String FULL_GRAPH = "Event.full";
+    public static final String SHORT_GRAPH = "Event.short";
+    // тот же план для запросов по Specification, где граф задаётся списком связей
+    public static final List<String> FULL_FETCH = List.of("category", "initiator", "location");
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     Long id;
@@ -40,7 +59,7 @@ public class Event {
     @Column(name = "annotation", nullable = false, length = 2000)
     String annotation;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "category_id")
     Category category;
 
@@ -56,11 +75,11 @@ public class Event {
     @Column(name = "event_date", nullable = false)
     LocalDateTime eventDate;
 
-    @ManyToOne(cascade = CascadeType.MERGE)
+    @ManyToOne(fetch = FetchType.LAZY, cascade = CascadeType.MERGE)
     @JoinColumn(name = "initiator_id")
     User initiator;
 
-    @ManyToOne(cascade = CascadeType.MERGE)
+    @ManyToOne(fetch = FetchType.LAZY, cascade = CascadeType.MERGE)
     @JoinColumn(name = "location_id")
     Location location;
 
@@ -0,0 +1,16 @@
+package ru.practicum.ewm.event.model;
+
+import java.time.LocalDateTime;
+
+// строка списка событий только с полями EventShortDto
+public record EventShortView(Long id,
+                             String annotation,
+                             Long categoryId,
+                             String categoryName,
+                             Integer confirmedRequests,
+                             LocalDateTime eventDate,
+                             Long initiatorId,
+                             String initiatorName,
+                             Boolean paid,
+                             String title) {
+}
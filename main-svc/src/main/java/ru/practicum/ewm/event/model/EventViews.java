@@ -0,0 +1,36 @@
+package ru.practicum.ewm.event.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.experimental.FieldDefaults;
+
+import java.time.LocalDateTime;
+
+// копия просмотров из сервиса статистики для сортировки по популярности
+@Builder
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "event_views")
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class EventViews {
+    @Id
+    @Column(name = "event_id")
+    Long eventId;
+
+    @Column(name = "views", nullable = false)
+    Long views;
+
+    @Column(name = "synced_at", nullable = false)
+    LocalDateTime syncedAt;
+}
@@ -1,15 +1,78 @@
 package ru.practicum.ewm.event.repository;
 
+import jakarta.persistence.LockModeType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import ru.practicum.ewm.event.model.Event;
+import ru.practicum.ewm.event.model.EventStatus;
+
+import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface EventRepository extends JpaRepository<Event, Long>, JpaSpecificationExecutor<Event> {
+public interface EventRepository extends JpaRepository<Event, Long>, JpaSpecificationExecutor<Event>,
+        EventShortViewRepository {
     boolean existsByCategoryId(Long categoryId);
 
+    @Override
+    @EntityGraph(Event.FULL_GRAPH)
+    Optional<Event> findById(Long id);
+
+    @Override
+    @EntityGraph(Event.SHORT_GRAPH)
+    List<Event> findAllById(Iterable<Long> ids);
+
+    // строка события заблокирована до конца транзакции
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT e FROM Event e WHERE e.id = :id")
+    Optional<Event> findByIdForUpdate(@Param("id") Long id);
+
+    @EntityGraph(Event.SHORT_GRAPH)
     Page<Event> findByInitiatorId(Long userId, Pageable pageable);
+
+    // страница по Specification с заданным планом загрузки связей, например Event.FULL_FETCH
+    default Page<Event> findAll(Specification<Event> specification, Pageable pageable, List<String> fetch) {
+        return findBy(specification, query -> query.project(fetch).page(pageable));
+    }
+
+    // постраничный обход по id без загрузки связанных категорий, пользователей и локаций
+    @Query("SELECT e.id " +
+            "FROM Event e " +
+            "WHERE e.state = :state AND e.id > :afterId " +
+            "ORDER BY e.id")
+    List<Long> findIdsByStateAfterId(@Param("state") EventStatus state, @Param("afterId") Long afterId,
+                                     Pageable pageable);
+
+    // проверка лимита и увеличение счётчика одной командой
+    @Modifying
+    @Query("UPDATE Event e " +
+            "SET e.confirmedRequests = e.confirmedRequests + 1 " +
+            "WHERE e.id = :eventId AND (e.participantLimit = 0 OR e.confirmedRequests < e.participantLimit)")
+    int incrementConfirmedRequestsWithinLimit(@Param("eventId") Long eventId);
+
+    @Modifying
+    @Query("UPDATE Event e " +
+            "SET e.confirmedRequests = e.confirmedRequests + :delta " +
+            "WHERE e.id = :eventId")
+    int addConfirmedRequests(@Param("eventId") Long eventId, @Param("delta") int delta);
+
+    // пересчитывает счётчики по таблице заявок и возвращает число исправленных событий
+    @Modifying
+    @Query(value = "UPDATE events e " +
+            "SET confirmed_requests = c.confirmed " +
+            "FROM (SELECT ev.id, COUNT(r.id) AS confirmed " +
+            "      FROM events ev " +
+            "      LEFT JOIN requests r ON r.event_id = ev.id AND r.status = 'CONFIRMED' " +
+            "      GROUP BY ev.id) c " +
+            "WHERE e.id = c.id AND e.confirmed_requests <> c.confirmed", nativeQuery = true)
+    int reconcileConfirmedRequests();
 }
\ No newline at end of file
@@ -0,0 +1,22 @@
+package ru.practicum.ewm.event.repository;
+
+import org.hibernate.boot.model.FunctionContributions;
+import org.hibernate.boot.model.FunctionContributor;
+import org.hibernate.type.BasicTypeRegistry;
+import org.hibernate.type.StandardBasicTypes;
+
+// ранжирование найденных событий по аннотации и описанию
+public class EventSearchFunctions implements FunctionContributor {
+    public static final String RANK = "event_search_rank";
+
+    static final String SEARCH_VECTOR = "(setweight(to_tsvector('simple', coalesce(?1, '')), 'A')"
+            + " || setweight(to_tsvector('simple', coalesce(?2, '')), 'B'))";
+    static final String SEARCH_QUERY = "to_tsquery('simple', ?3)";
+
+    @Override
+    public void contributeFunctions(FunctionContributions functionContributions) {
+        BasicTypeRegistry types = functionContributions.getTypeConfiguration().getBasicTypeRegistry();
+        functionContributions.getFunctionRegistry().registerPattern(RANK,
+                "ts_rank(" + SEARCH_VECTOR + ", " + SEARCH_QUERY + ")", types.resolve(StandardBasicTypes.DOUBLE));
+    }
+}
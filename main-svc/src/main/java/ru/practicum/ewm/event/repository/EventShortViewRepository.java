@@ -0,0 +1,13 @@
+package ru.practicum.ewm.event.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import ru.practicum.ewm.event.model.Event;
+import ru.practicum.ewm.event.model.EventShortView;
+
+import java.util.List;
+
+public interface EventShortViewRepository {
+    // страница сразу в EventShortView, без подсчёта общего числа строк
+    List<EventShortView> findShortViews(Specification<Event> specification, Pageable pageable);
+}
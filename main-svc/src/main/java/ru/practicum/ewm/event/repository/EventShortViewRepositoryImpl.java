@@ -0,0 +1,62 @@
+package ru.practicum.ewm.event.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import ru.practicum.ewm.category.model.Category;
+import ru.practicum.ewm.event.model.Event;
+import ru.practicum.ewm.event.model.EventShortView;
+import ru.practicum.ewm.user.model.User;
+
+import java.util.List;
+
+// читает только колонки списка сразу в запись, минуя контекст персистентности
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class EventShortViewRepositoryImpl implements EventShortViewRepository {
+    @PersistenceContext
+    EntityManager entityManager;
+
+    @Override
+    public List<EventShortView> findShortViews(Specification<Event> specification, Pageable pageable) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<EventShortView> query = criteriaBuilder.createQuery(EventShortView.class);
+        Root<Event> root = query.from(Event.class);
+        Join<Event, Category> category = root.join("category");
+        Join<Event, User> initiator = root.join("initiator");
+
+        query.select(criteriaBuilder.construct(EventShortView.class,
+                root.get("id"),
+                root.get("annotation"),
+                category.get("id"),
+                category.get("name"),
+                root.get("confirmedRequests"),
+                root.get("eventDate"),
+                initiator.get("id"),
+                initiator.get("name"),
+                root.get("paid"),
+                root.get("title")));
+
+        // спецификации сортировки по просмотрам и релевантности сами задают ORDER BY
+        Predicate predicate = specification.toPredicate(root, query, criteriaBuilder);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        if (pageable.getSort().isSorted()) {
+            query.orderBy(QueryUtils.toOrders(pageable.getSort(), root, criteriaBuilder));
+        }
+
+        return entityManager.createQuery(query)
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize())
+                .getResultList();
+    }
+}
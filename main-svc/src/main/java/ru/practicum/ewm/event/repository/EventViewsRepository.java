@@ -0,0 +1,34 @@
+package ru.practicum.ewm.event.repository;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.ewm.event.model.EventViews;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+@Repository
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class EventViewsRepository {
+    static final String UPSERT_VIEWS = """
+            INSERT INTO event_views (event_id, views, synced_at)
+            VALUES (?, ?, ?)
+            ON CONFLICT (event_id) DO UPDATE
+            SET views = EXCLUDED.views,
+                synced_at = EXCLUDED.synced_at
+            """;
+
+    JdbcTemplate jdbcTemplate;
+
+    public void saveAll(List<EventViews> views) {
+        jdbcTemplate.batchUpdate(UPSERT_VIEWS, views, views.size(), (ps, eventViews) -> {
+            ps.setLong(1, eventViews.getEventId());
+            ps.setLong(2, eventViews.getViews());
+            ps.setTimestamp(3, Timestamp.valueOf(eventViews.getSyncedAt()));
+        });
+    }
+}
@@ -0,0 +1,29 @@
+package ru.practicum.ewm.event.service;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.ewm.event.repository.EventRepository;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class ConfirmedRequestsReconciler {
+    EventRepository eventRepository;
+
+    // сверка счётчиков с таблицей заявок после ручных правок в базе
+    @Transactional
+    @Scheduled(initialDelayString = "${events.confirmed-requests.reconcile-interval:PT10M}",
+            fixedDelayString = "${events.confirmed-requests.reconcile-interval:PT10M}")
+    public void reconcile() {
+        int fixed = eventRepository.reconcileConfirmedRequests();
+        if (fixed > 0) {
+            log.warn("Исправлены счётчики подтверждённых заявок у {} событий", fixed);
+        }
+    }
+}
@@ -1,23 +1,26 @@
 package ru.practicum.ewm.event.service;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
+import org.hibernate.query.NullPrecedence;
+import org.hibernate.query.SortDirection;
+import org.hibernate.query.criteria.HibernateCriteriaBuilder;
+import org.hibernate.query.criteria.JpaEntityJoin;
+import org.hibernate.query.criteria.JpaRoot;
+import org.hibernate.query.sqm.tree.SqmJoinType;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import ru.practicum.client.StatsClient;
+import ru.practicum.client.hit.HitPublisher;
 import ru.practicum.dto.EndpointHitDto;
-import ru.practicum.dto.ViewStatsDto;
 import ru.practicum.ewm.category.model.Category;
 import ru.practicum.ewm.category.repository.CategoryRepository;
 import ru.practicum.ewm.comment.dto.CommentDto;
@@ -25,6 +28,7 @@ import ru.practicum.ewm.comment.mapper.CommentMapper;
 import ru.practicum.ewm.comment.model.Comment;
 import ru.practicum.ewm.comment.repository.CommentRepository;
 import ru.practicum.ewm.event.repository.EventRepository;
+import ru.practicum.ewm.event.repository.EventSearchFunctions;
 import ru.practicum.ewm.event.dto.EventFullDto;
 import ru.practicum.ewm.event.dto.EventRequestStatusUpdateRequest;
 import ru.practicum.ewm.event.dto.EventShortDto;
@@ -38,6 +42,7 @@ import ru.practicum.ewm.event.model.EventAdminParams;
 import ru.practicum.ewm.event.model.EventAdminState;
 import ru.practicum.ewm.event.model.EventPublicParams;
 import ru.practicum.ewm.event.model.EventStatus;
+import ru.practicum.ewm.event.model.EventViews;
 import ru.practicum.ewm.event.model.EventUserState;
 import ru.practicum.ewm.exception.AccessDeniedException;
 import ru.practicum.ewm.exception.ConflictException;
@@ -56,13 +61,15 @@ import ru.practicum.ewm.user.repository.UserRepository;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 @Service
@@ -74,14 +81,15 @@ public class EventServiceImpl implements EventService {
     String applicationName;
 
     static DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    static final Pattern SEARCH_TERM_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
 
     final EventRepository eventRepository;
     final UserRepository userRepository;
     final RequestRepository requestRepository;
     final CategoryRepository categoryRepository;
     final LocationRepository locationRepository;
-    final StatsClient statsClient;
-    final ObjectMapper objectMapper;
+    final HitPublisher hitPublisher;
+    final EventViewsCache eventViewsCache;
     final CommentRepository commentRepository;
 
     @Override
@@ -94,25 +102,16 @@ public class EventServiceImpl implements EventService {
         Pageable pageable = getPageable(eventParams);
         Specification<Event> specification = buildSpecification(eventParams);
 
-        List<Event> events = eventRepository.findAll(specification, pageable).getContent();
-        List<EventShortDto> result = events.stream()
+        // список читает только колонки EventShortDto, без описания, локации и управляемых сущностей
+        List<EventShortDto> result = eventRepository.findShortViews(specification, pageable).stream()
                 .map(EventMapper::toEventShortDto)
                 .toList();
 
-        List<Request> requests = requestRepository.findAllByEventIdInAndStatus(events
-                .stream()
-                .map(Event::getId)
-                .toList(), RequestStatus.CONFIRMED);
-
-        Map<Long, List<Request>> confirmedRequestsCountMap = requests.stream()
-                .collect(Collectors.groupingBy(r -> r.getEvent().getId()));
-
-        Map<Long, Long> viewStatsMap = getEventViews(events);
+        Map<Long, Long> viewStatsMap = eventViewsCache.getViews(result.stream()
+                .map(EventShortDto::getId)
+                .toList());
 
         for (EventShortDto event : result) {
-            List<Request> eventRequests = confirmedRequestsCountMap.getOrDefault(event.getId(), List.of());
-            event.setConfirmedRequests(eventRequests.size());
-
             Long viewsFromMap = viewStatsMap.getOrDefault(event.getId(), 0L);
             event.setViews(viewsFromMap);
         }
@@ -132,8 +131,8 @@ public class EventServiceImpl implements EventService {
 
         saveStatHit(request);
 
-        long views = getEventViews(List.of(event)).getOrDefault(event.getId(), 1L);
-        Map<Long, List<Request>> confirmedRequests = getConfirmedRequestsCount(List.of(event));
+        // просмотры запрашиваются, пока поток транзакции читает комментарии
+        CompletableFuture<Map<Long, Long>> views = eventViewsCache.getViewsAsync(List.of(event.getId()));
         Page<Comment> comments = commentRepository.findVisibleCommentsByEvent(event.getId(),
                 PageRequest.of(0, 10));
         List<CommentDto> commentDtos = comments.stream()
@@ -141,8 +140,8 @@ public class EventServiceImpl implements EventService {
                 .toList();
 
         EventFullDto eventFullDto = EventMapper.toEventFullDto(event);
-        eventFullDto.setViews(views);
-        eventFullDto.setConfirmedRequests(confirmedRequests.getOrDefault(event.getId(), List.of()).size());
+        // хит этого запроса попадёт в просмотры после отправки пачки и обновления кэша
+        eventFullDto.setViews(views.join().getOrDefault(event.getId(), 0L));
         eventFullDto.setComments(commentDtos);
 
         return eventFullDto;
@@ -156,24 +155,11 @@ public class EventServiceImpl implements EventService {
         Specification<Event> specification = Specification.where(null);
         specification = buildSpecification(eventAdminParams, specification);
 
-        Page<Event> events = eventRepository.findAll(specification, pageable);
+        Page<Event> events = eventRepository.findAll(specification, pageable, Event.FULL_FETCH);
 
-        List<EventFullDto> result = events.getContent().stream()
+        return events.getContent().stream()
                 .map(EventMapper::toEventFullDto)
                 .toList();
-
-        List<Request> requests = requestRepository.findAllByEventIdInAndStatus(events
-                .stream().map(Event::getId).toList(), RequestStatus.CONFIRMED);
-
-        Map<Long, List<Request>> confirmedRequestsCountMap = requests.stream()
-                .collect(Collectors.groupingBy(r -> r.getEvent().getId()));
-
-        for (EventFullDto event : result) {
-            List<Request> eventRequests = confirmedRequestsCountMap.getOrDefault(event.getId(), List.of());
-            event.setConfirmedRequests(eventRequests.size());
-        }
-
-        return result;
     }
 
     @Override
@@ -327,7 +313,8 @@ public class EventServiceImpl implements EventService {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new EntityNotFoundException("Пользователь с id " + userId + " не найден"));
 
-        Event event = eventRepository.findById(eventId)
+        // счётчик не изменится до конца транзакции: строка события заблокирована
+        Event event = eventRepository.findByIdForUpdate(eventId)
                 .orElseThrow(() -> new EntityNotFoundException("Событие с id " + eventId + " не найдено"));
 
         if (!event.getInitiator().equals(user)) {
@@ -397,8 +384,9 @@ public class EventServiceImpl implements EventService {
                     .toList();
             requestMap.put("rejectedRequests", rejectedRequestsDto);
 
-            event.setConfirmedRequests(confirmedList.size() + confirmedRequests);
-            eventRepository.save(event);
+            if (!confirmedList.isEmpty()) {
+                eventRepository.addConfirmedRequests(eventId, confirmedList.size());
+            }
         }
         return requestMap;
     }
@@ -523,64 +511,8 @@ public class EventServiceImpl implements EventService {
         return specification;
     }
 
-    private Map<Long, Long> getEventViews(List<Event> events) {
-        if (events.isEmpty()) {
-            return Map.of();
-        }
-
-        List<String> uris = events.stream()
-                .map(event -> "/events/" + event.getId())
-                .toList();
-
-        LocalDateTime startDate = events.stream()
-                .map(Event::getCreatedOn)
-                .min(LocalDateTime::compareTo)
-                .orElseThrow(() -> new IllegalStateException("Не удалось определить дату самого раннего события"));
-
-        ResponseEntity<Object> response = statsClient.get(
-                startDate.toString(),
-                LocalDateTime.now().toString(),
-                uris,
-                true
-        );
-
-        Object responseBody = response.getBody();
-
-        if (!(responseBody instanceof List<?> rawList)) {
-            System.err.println("Unexpected response format: " + responseBody);
-            return Map.of();
-        }
-
-        List<ViewStatsDto> viewStatsDto = rawList.stream()
-                .filter(Map.class::isInstance)
-                .map(map -> objectMapper.convertValue(map, ViewStatsDto.class))
-                .filter(stats -> stats.getUri().startsWith("/events/"))
-                .toList();
-
-        return viewStatsDto.stream()
-                .collect(Collectors.toMap(
-                        stats -> Long.parseLong(stats.getUri().substring("/events/".length())),
-                        ViewStatsDto::getHits
-                ));
-    }
-
-    private Map<Long, List<Request>> getConfirmedRequestsCount(List<Event> events) {
-        if (events.isEmpty()) {
-            return Collections.emptyMap();
-        }
-
-        List<Long> eventIds = events.stream()
-                .map(Event::getId)
-                .toList();
-
-        List<Request> requests = requestRepository.findAllByEventIdInAndStatus(eventIds, RequestStatus.CONFIRMED);
-
-        return requests.stream()
-                .collect(Collectors.groupingBy(request -> request.getEvent().getId()));
-    }
-
     private void saveStatHit(HttpServletRequest request) {
-        statsClient.create(EndpointHitDto.builder()
+        hitPublisher.publish(EndpointHitDto.builder()
                 .app(applicationName)
                 .uri(request.getRequestURI())
                 .ip(request.getRemoteAddr())
@@ -592,7 +524,8 @@ public class EventServiceImpl implements EventService {
         Specification<Event> specification = Specification.where((root, query, criteriaBuilder) ->
                 criteriaBuilder.equal(root.get("state"), EventStatus.PUBLISHED));
 
-        if (eventParams.getText() != null) {
+        if (eventParams.getText() != null && !eventParams.getText().isBlank()) {
+            // подстрочный поиск обслуживают trigram-индексы
             String searchText = "%" + eventParams.getText().toLowerCase() + "%";
             specification = specification.and((root, query, criteriaBuilder) ->
                     criteriaBuilder.or(
@@ -621,16 +554,67 @@ public class EventServiceImpl implements EventService {
                     criteriaBuilder.greaterThan(root.get("participantLimit"), 0));
         }
 
+        if ("VIEWS".equals(eventParams.getSort())) {
+            specification = specification.and(orderByViews());
+        } else if (isSortedByRelevance(eventParams)) {
+            specification = specification.and(orderByRelevance(toSearchQuery(eventParams.getText())));
+        }
+
         return specification;
     }
 
+    // sort=RELEVANCE упорядочивает найденные события по ts_rank, при равенстве — по id
+    private Specification<Event> orderByRelevance(String searchQuery) {
+        return (root, query, criteriaBuilder) -> {
+            if (Long.class.equals(query.getResultType())) {
+                return null;
+            }
+            query.orderBy(criteriaBuilder.desc(criteriaBuilder.function(EventSearchFunctions.RANK, Double.class,
+                            root.get("annotation"), root.get("description"), criteriaBuilder.literal(searchQuery))),
+                    criteriaBuilder.asc(root.get("id")));
+            return null;
+        };
+    }
+
+    // запрос только для ранжирования: чем больше слов текста встретилось, тем выше событие
+    private static String toSearchQuery(String text) {
+        if (text == null || text.isBlank()) {
+            return null;
+        }
+        String searchQuery = Arrays.stream(SEARCH_TERM_SEPARATOR.split(text.toLowerCase()))
+                .filter(term -> !term.isEmpty())
+                .map(term -> term + ":*")
+                .collect(Collectors.joining(" | "));
+        return searchQuery.isEmpty() ? null : searchQuery;
+    }
+
+    private static boolean isSortedByRelevance(EventPublicParams eventParams) {
+        return "RELEVANCE".equals(eventParams.getSort()) && toSearchQuery(eventParams.getText()) != null;
+    }
+
+    // просмотры берутся из event_views, события без синхронизированных просмотров идут в конце
+    private Specification<Event> orderByViews() {
+        return (root, query, criteriaBuilder) -> {
+            if (Long.class.equals(query.getResultType())) {
+                return null;
+            }
+            HibernateCriteriaBuilder builder = (HibernateCriteriaBuilder) criteriaBuilder;
+            JpaEntityJoin<EventViews> views = ((JpaRoot<Event>) root).join(EventViews.class, SqmJoinType.LEFT);
+            views.on(builder.equal(views.get("eventId"), root.get("id")));
+            query.orderBy(builder.sort(views.get("views"), SortDirection.DESCENDING, NullPrecedence.LAST),
+                    builder.asc(root.get("id")));
+            return null;
+        };
+    }
+
     private Pageable getPageable(EventPublicParams eventParams) {
         Sort sort = Sort.by(Sort.Direction.ASC, "id");
 
         if (eventParams.getSort().equals("EVENT_DATE")) {
             sort = Sort.by(Sort.Direction.ASC, "eventDate");
-        } else if (eventParams.getSort().equals("VIEWS")) {
-            sort = Sort.by(Sort.Direction.DESC, "views");
+        } else if (eventParams.getSort().equals("VIEWS") || isSortedByRelevance(eventParams)) {
+            // порядок по просмотрам и по релевантности задают спецификации orderByViews и orderByRelevance
+            sort = Sort.unsorted();
         }
 
         return PageRequest.of(eventParams.getFrom(), eventParams.getSize(), sort);
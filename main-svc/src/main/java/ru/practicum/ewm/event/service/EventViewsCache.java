@@ -0,0 +1,120 @@
+package ru.practicum.ewm.event.service;
+
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.AsyncCacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientException;
+import ru.practicum.client.AsyncStatsClient;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+@Slf4j
+@Component
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class EventViewsCache {
+    AsyncStatsClient statsClient;
+    boolean approximate;
+    Duration fetchTimeout;
+    AsyncLoadingCache<Long, CachedViews> cache;
+
+    public EventViewsCache(AsyncStatsClient statsClient,
+                           MeterRegistry meterRegistry,
+                           @Value("${views.cache.maximum-size:10000}") long maximumSize,
+                           @Value("${views.cache.expire-after-write:PT5M}") Duration expireAfterWrite,
+                           @Value("${views.cache.refresh-after-write:PT10S}") Duration refreshAfterWrite,
+                           @Value("${views.cache.fetch-timeout:PT0.5S}") Duration fetchTimeout,
+                           @Value("${stats.views.approximate:true}") boolean approximate) {
+        this.statsClient = statsClient;
+        this.approximate = approximate;
+        this.fetchTimeout = fetchTimeout;
+        // после refresh-after-write устаревшая запись отдаётся сразу, а обновляется в фоне
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .refreshAfterWrite(refreshAfterWrite)
+                .recordStats()
+                .buildAsync(new ViewsLoader());
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "eventViews");
+    }
+
+    public Map<Long, Long> getViews(Collection<Long> ids) {
+        return getViewsAsync(ids).join();
+    }
+
+    // не успевшие за fetch-timeout просмотры берутся из кэша или равны нулю, загрузка продолжается в фоне
+    public CompletableFuture<Map<Long, Long>> getViewsAsync(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return CompletableFuture.completedFuture(Map.of());
+        }
+
+        Set<Long> eventIds = Set.copyOf(ids);
+
+        // таймаут на копии не завершает общую загрузку в кэше
+        return cache.getAll(eventIds)
+                .copy()
+                .orTimeout(fetchTimeout.toMillis(), TimeUnit.MILLISECONDS)
+                .handle((cached, e) -> {
+                    if (e == null) {
+                        return toViews(cached);
+                    }
+                    Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+                    if (!(cause instanceof RestClientException) && !(cause instanceof TimeoutException)) {
+                        throw e instanceof CompletionException completionException
+                                ? completionException : new CompletionException(e);
+                    }
+                    log.warn("Не удалось получить просмотры событий: {}", cause.getMessage() != null
+                            ? cause.getMessage() : "превышено время ожидания " + fetchTimeout);
+                    return toViews(cache.synchronous().getAllPresent(eventIds));
+                });
+    }
+
+    private static Map<Long, Long> toViews(Map<Long, CachedViews> cached) {
+        Map<Long, Long> views = new HashMap<>(cached.size());
+        cached.forEach((id, value) -> views.put(id, value.views()));
+        return views;
+    }
+
+    // просмотры за всё время
+    private CompletableFuture<Map<Long, CachedViews>> fetch(Set<? extends Long> eventIds) {
+        return statsClient.getLifetimeEventHits(List.<Long>copyOf(eventIds), true, approximate)
+                .thenApply(hits -> {
+                    // события без хитов тоже кэшируются
+                    Map<Long, CachedViews> result = new HashMap<>(eventIds.size());
+                    eventIds.forEach(id -> result.put(id, new CachedViews(hits.get(id))));
+                    return result;
+                });
+    }
+
+    private class ViewsLoader implements AsyncCacheLoader<Long, CachedViews> {
+        @Override
+        public CompletableFuture<CachedViews> asyncLoad(Long eventId, Executor executor) {
+            return fetch(Set.of(eventId)).thenApply(views -> views.get(eventId));
+        }
+
+        @Override
+        public CompletableFuture<Map<Long, CachedViews>> asyncLoadAll(Set<? extends Long> eventIds,
+                                                                     Executor executor) {
+            return fetch(eventIds);
+        }
+    }
+
+    record CachedViews(long views) {
+    }
+}
@@ -0,0 +1,78 @@
+package ru.practicum.ewm.event.service;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientException;
+import ru.practicum.client.StatsClient;
+import ru.practicum.client.response.EventHits;
+import ru.practicum.ewm.event.model.EventStatus;
+import ru.practicum.ewm.event.model.EventViews;
+import ru.practicum.ewm.event.repository.EventRepository;
+import ru.practicum.ewm.event.repository.EventViewsRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Slf4j
+@Component
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class EventViewsSynchronizer {
+    EventRepository eventRepository;
+    EventViewsRepository eventViewsRepository;
+    StatsClient statsClient;
+    int batchSize;
+    boolean approximate;
+
+    public EventViewsSynchronizer(EventRepository eventRepository,
+                                  EventViewsRepository eventViewsRepository,
+                                  StatsClient statsClient,
+                                  @Value("${events.views.sync-batch-size:500}") int batchSize,
+                                  @Value("${stats.views.approximate:true}") boolean approximate) {
+        this.eventRepository = eventRepository;
+        this.eventViewsRepository = eventViewsRepository;
+        this.statsClient = statsClient;
+        this.batchSize = batchSize;
+        this.approximate = approximate;
+    }
+
+    // обходит опубликованные события пачками по id и переписывает их просмотры в event_views
+    @Scheduled(fixedDelayString = "${events.views.sync-interval:PT1M}")
+    public void sync() {
+        long afterId = 0;
+        List<Long> eventIds = nextBatch(afterId);
+        while (!eventIds.isEmpty()) {
+            try {
+                syncBatch(eventIds);
+            } catch (RestClientException e) {
+                // остальные пачки дождутся следующего запуска
+                log.warn("Не удалось синхронизировать просмотры событий: {}", e.getMessage());
+                return;
+            }
+            afterId = eventIds.getLast();
+            eventIds = nextBatch(afterId);
+        }
+    }
+
+    private List<Long> nextBatch(long afterId) {
+        return eventRepository.findIdsByStateAfterId(EventStatus.PUBLISHED, afterId, PageRequest.of(0, batchSize));
+    }
+
+    // просмотры за всё время, без диапазона дат
+    private void syncBatch(List<Long> eventIds) {
+        LocalDateTime now = LocalDateTime.now();
+        EventHits hits = statsClient.getLifetimeEventHits(eventIds, true, approximate);
+
+        eventViewsRepository.saveAll(eventIds.stream()
+                .map(eventId -> EventViews.builder()
+                        .eventId(eventId)
+                        .views(hits.get(eventId))
+                        .syncedAt(now)
+                        .build())
+                .toList());
+    }
+}
@@ -1,6 +1,8 @@
 package ru.practicum.ewm.request.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import ru.practicum.ewm.request.model.Request;
 import ru.practicum.ewm.request.model.RequestStatus;
@@ -19,7 +21,6 @@ public interface RequestRepository  extends JpaRepository<Request, Long> {
 
     List<Request> findAllByEventId(Long eventId);
 
-    List<Request> findAllByEventIdInAndStatus(List<Long> eventIds, RequestStatus status);
-
-    int countByEventIdAndStatus(Long eventId, RequestStatus status);
+    @Query("SELECT r.status FROM Request r WHERE r.id = :id")
+    RequestStatus findStatusById(@Param("id") Long id);
 }
\ No newline at end of file
@@ -62,6 +62,11 @@ public class RequestServiceImpl implements RequestService {
                 ? RequestStatus.CONFIRMED
                 : RequestStatus.PENDING);
 
+        if (request.getStatus().equals(RequestStatus.CONFIRMED)
+                && eventRepository.incrementConfirmedRequestsWithinLimit(eventId) == 0) {
+            throw new ConflictException("Превышен лимит участников события");
+        }
+
         request.setEvent(event);
         request.setRequester(user);
         request.setCreated(LocalDateTime.now());
@@ -78,7 +83,9 @@ public class RequestServiceImpl implements RequestService {
         Request request = requestRepository.findById(requestId)
                 .orElseThrow(() -> new EntityNotFoundException("Заявка с id " + requestId + " не найдена"));
 
-        RequestStatus requestStatus = request.getStatus();
+        // статус перечитывается под блокировкой события: заявку могли подтвердить, пока её загружали
+        eventRepository.findByIdForUpdate(request.getEvent().getId());
+        RequestStatus requestStatus = requestRepository.findStatusById(requestId);
 
         if (requestStatus.equals(RequestStatus.CANCELED) || requestStatus.equals(RequestStatus.REJECTED)) {
             throw new ConflictException("Заявка с id " + requestId + " уже отменена");
@@ -90,6 +97,10 @@ public class RequestServiceImpl implements RequestService {
             throw new AccessDeniedException("Инициатор события может отменить событие только на этапе ожидания публикации");
         }
 
+        if (requestStatus.equals(RequestStatus.CONFIRMED)) {
+            eventRepository.addConfirmedRequests(request.getEvent().getId(), -1);
+        }
+
         request.setStatus(RequestStatus.CANCELED);
         return RequestMapper.toParticipationRequestDto(request);
     }
@@ -110,7 +121,7 @@ public class RequestServiceImpl implements RequestService {
         }
 
         if (event.getParticipantLimit() > 0
-                && event.getParticipantLimit() <= requestRepository.countByEventIdAndStatus(eventId, RequestStatus.CONFIRMED)) {
+                && event.getParticipantLimit() <= event.getConfirmedRequests()) {
             throw new ConflictException("Превышен лимит участников события");
         }
     }
@@ -1,4 +1,4 @@
-DROP TABLE IF EXISTS users, categories, locations, events, compilations, compilations_to_event, requests, comments CASCADE;
+DROP TABLE IF EXISTS users, categories, locations, events, event_views, compilations, compilations_to_event, requests, comments CASCADE;
 
 CREATE TABLE IF NOT EXISTS users (
     id BIGINT GENERATED ALWAYS AS IDENTITY PRIMARY KEY UNIQUE,
@@ -21,7 +21,7 @@ CREATE TABLE IF NOT EXISTS events (
     id BIGINT GENERATED ALWAYS AS IDENTITY PRIMARY KEY UNIQUE,
     annotation VARCHAR(2000) NOT NULL,
     category_id BIGINT NOT NULL,
-    confirmed_requests BIGINT,
+    confirmed_requests BIGINT NOT NULL DEFAULT 0,
     creation_date TIMESTAMP WITHOUT TIME ZONE,
     description VARCHAR(7000),
     event_date TIMESTAMP WITHOUT TIME ZONE NOT NULL,
@@ -37,6 +37,15 @@ CREATE TABLE IF NOT EXISTS events (
     CONSTRAINT fk_event_to_category FOREIGN KEY (category_id) REFERENCES categories (id),
     CONSTRAINT fk_location FOREIGN KEY (location_id) REFERENCES locations (id)
 );
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE INDEX IF NOT EXISTS idx_events_annotation_trgm ON events USING GIN (lower(annotation) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_events_description_trgm ON events USING GIN (lower(description) gin_trgm_ops);
+CREATE TABLE IF NOT EXISTS event_views (
+    event_id BIGINT PRIMARY KEY REFERENCES events (id) ON DELETE CASCADE,
+    views BIGINT NOT NULL,
+    synced_at TIMESTAMP WITHOUT TIME ZONE NOT NULL
+);
+CREATE INDEX IF NOT EXISTS idx_event_views_views ON event_views (views DESC NULLS LAST, event_id);
 
 CREATE TABLE IF NOT EXISTS requests (
     id BIGINT GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
@@ -0,0 +1,175 @@
+package ru.practicum.ewm;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.practicum.client.hit.HitPublisher;
+import ru.practicum.ewm.category.model.Category;
+import ru.practicum.ewm.category.repository.CategoryRepository;
+import ru.practicum.ewm.compilation.model.Compilation;
+import ru.practicum.ewm.compilation.repository.CompilationRepository;
+import ru.practicum.ewm.event.model.Event;
+import ru.practicum.ewm.event.model.EventStatus;
+import ru.practicum.ewm.event.repository.EventRepository;
+import ru.practicum.ewm.event.service.ConfirmedRequestsReconciler;
+import ru.practicum.ewm.event.service.EventViewsCache;
+import ru.practicum.ewm.event.service.EventViewsSynchronizer;
+import ru.practicum.ewm.location.model.Location;
+import ru.practicum.ewm.location.repository.LocationRepository;
+import ru.practicum.ewm.request.model.Request;
+import ru.practicum.ewm.request.model.RequestStatus;
+import ru.practicum.ewm.request.repository.RequestRepository;
+import ru.practicum.ewm.user.model.User;
+import ru.practicum.ewm.user.repository.UserRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// у каждого события свои связи, так что загрузка по одной растит число запросов со страницей
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class FetchPlanStatementCountTest {
+    static final int EVENTS = 6;
+
+    @Autowired
+    MockMvc mockMvc;
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+    @Autowired
+    UserRepository userRepository;
+    @Autowired
+    CategoryRepository categoryRepository;
+    @Autowired
+    LocationRepository locationRepository;
+    @Autowired
+    EventRepository eventRepository;
+    @Autowired
+    RequestRepository requestRepository;
+    @Autowired
+    CompilationRepository compilationRepository;
+
+    // сервис статистики и фоновые задачи не добавляют запросов
+    @MockBean
+    EventViewsCache eventViewsCache;
+    @MockBean
+    HitPublisher hitPublisher;
+    @MockBean
+    EventViewsSynchronizer eventViewsSynchronizer;
+    @MockBean
+    ConfirmedRequestsReconciler confirmedRequestsReconciler;
+
+    List<Event> events;
+    User requester;
+    User singleRequester;
+
+    @BeforeEach
+    void setUp() {
+        events = new ArrayList<>();
+        for (int i = 0; i < EVENTS; i++) {
+            User initiator = userRepository.save(new User(null, "initiator " + i, "initiator" + i + "@mail.ru"));
+            Category category = categoryRepository.save(new Category(null, "category " + i));
+            Location location = locationRepository.save(new Location(null, 55.7f + i, 37.6f + i));
+            events.add(eventRepository.save(Event.builder()
+                    .annotation("annotation of event " + i)
+                    .description("description of event " + i)
+                    .category(category)
+                    .initiator(initiator)
+                    .location(location)
+                    .confirmedRequests(0)
+                    .createdOn(LocalDateTime.now())
+                    .eventDate(LocalDateTime.now().plusDays(i + 1))
+                    .publishedOn(LocalDateTime.now())
+                    .paid(false)
+                    .participantLimit(0)
+                    .requestModeration(false)
+                    .state(EventStatus.PUBLISHED)
+                    .title("event " + i)
+                    .build()));
+        }
+
+        requester = userRepository.save(new User(null, "requester", "requester@mail.ru"));
+        singleRequester = userRepository.save(new User(null, "single requester", "single@mail.ru"));
+        for (Event event : events) {
+            requestRepository.save(new Request(null, event, requester, LocalDateTime.now(), RequestStatus.PENDING));
+        }
+        requestRepository.save(new Request(null, events.get(0), singleRequester, LocalDateTime.now(),
+                RequestStatus.PENDING));
+
+        for (int i = 0; i < EVENTS / 2; i++) {
+            compilationRepository.save(Compilation.builder()
+                    .pinned(false)
+                    .title("compilation " + i)
+                    .events(new HashSet<>(events.subList(2 * i, 2 * i + 2)))
+                    .build());
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DELETE FROM compilations_of_events");
+        jdbcTemplate.execute("DELETE FROM compilations");
+        jdbcTemplate.execute("DELETE FROM requests");
+        jdbcTemplate.execute("DELETE FROM events");
+        jdbcTemplate.execute("DELETE FROM locations");
+        jdbcTemplate.execute("DELETE FROM categories");
+        jdbcTemplate.execute("DELETE FROM users");
+    }
+
+    // страница событий со связями одним запросом и подсчёт
+    @Test
+    void adminEventListRunsPageAndCountQueriesOnly() throws Exception {
+        assertThat(countStatements("/admin/events?from=0&size=1", 1)).isEqualTo(2);
+        assertThat(countStatements("/admin/events?from=0&size=" + (EVENTS - 1), EVENTS - 1)).isEqualTo(2);
+    }
+
+    // проекция без подсчёта общего числа
+    @Test
+    void publicEventListRunsSingleProjectionQuery() throws Exception {
+        assertThat(countStatements("/events?from=0&size=1", 1)).isEqualTo(1);
+        assertThat(countStatements("/events?from=0&size=" + EVENTS, EVENTS)).isEqualTo(1);
+    }
+
+    // страница подборок, подсчёт и по одному IN на связь
+    @Test
+    void compilationPageBatchesEventAssociations() throws Exception {
+        assertThat(countStatements("/compilations?from=0&size=1", 1)).isEqualTo(5);
+        assertThat(countStatements("/compilations?from=0&size=" + (EVENTS / 2 - 1), EVENTS / 2 - 1)).isEqualTo(5);
+    }
+
+    // событие и заявитель нужны только по id
+    @Test
+    void requestListDoesNotLoadEventsOrRequesters() throws Exception {
+        assertThat(countStatements("/users/" + singleRequester.getId() + "/requests", 1)).isEqualTo(2);
+        assertThat(countStatements("/users/" + requester.getId() + "/requests", EVENTS)).isEqualTo(2);
+    }
+
+    private long countStatements(String url, int expectedSize) throws Exception {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        mockMvc.perform(get(url))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(expectedSize)));
+        return statistics.getPrepareStatementCount();
+    }
+}
@@ -0,0 +1,111 @@
+package ru.practicum.ewm.benchmark;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// нагрузка на запущенный main-svc: mvn -pl main-svc test -Dtest=PublicEventsLoadBenchmark -Dbenchmark.url=...
+@EnabledIfSystemProperty(named = "benchmark.url", matches = ".+")
+class PublicEventsLoadBenchmark {
+    static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    @Test
+    void measureThroughput() throws InterruptedException {
+        String baseUrl = System.getProperty("benchmark.url");
+        List<URI> targets = Arrays.stream(System.getProperty("benchmark.paths", "/events").split(","))
+                .map(path -> URI.create(baseUrl + path))
+                .toList();
+        int concurrency = Integer.getInteger("benchmark.concurrency", 400);
+        Duration warmup = Duration.parse(System.getProperty("benchmark.warmup", "PT10S"));
+        Duration duration = Duration.parse(System.getProperty("benchmark.duration", "PT30S"));
+
+        run(targets, concurrency, warmup);
+        Result result = run(targets, concurrency, duration);
+
+        System.out.printf("concurrency=%d duration=%s requests=%d errors=%d throughput=%.1f req/s"
+                        + " p50=%.1f ms p99=%.1f ms max=%.1f ms%n",
+                concurrency, duration, result.requests(), result.errors(),
+                result.requests() / (duration.toMillis() / 1000.0),
+                result.percentile(0.50), result.percentile(0.99), result.percentile(1.0));
+        assertThat(result.requests()).isPositive();
+    }
+
+    // клиенты — виртуальные потоки, чтобы сам генератор нагрузки не упирался в число потоков
+    private static Result run(List<URI> targets, int concurrency, Duration duration) throws InterruptedException {
+        HttpClient httpClient = HttpClient.newBuilder()
+                .connectTimeout(REQUEST_TIMEOUT)
+                .build();
+        long deadline = System.nanoTime() + duration.toNanos();
+        AtomicLong errors = new AtomicLong();
+        List<long[]> latencies = new ArrayList<>(concurrency);
+
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < concurrency; i++) {
+                long[] clientLatencies = new long[1 << 16];
+                latencies.add(clientLatencies);
+                clients.submit(() -> {
+                    int count = 0;
+                    while (System.nanoTime() < deadline) {
+                        URI target = targets.get(ThreadLocalRandom.current().nextInt(targets.size()));
+                        long startedAt = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = httpClient.send(HttpRequest.newBuilder(target)
+                                    .timeout(REQUEST_TIMEOUT)
+                                    .GET()
+                                    .build(), HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() != 200) {
+                                errors.incrementAndGet();
+                            }
+                        } catch (Exception e) {
+                            errors.incrementAndGet();
+                        }
+                        if (count < clientLatencies.length - 1) {
+                            clientLatencies[++count] = System.nanoTime() - startedAt;
+                        }
+                    }
+                    clientLatencies[0] = count;
+                });
+            }
+        }
+        httpClient.close();
+
+        int total = latencies.stream().mapToInt(clientLatencies -> (int) clientLatencies[0]).sum();
+        long[] all = new long[total];
+        int position = 0;
+        for (long[] clientLatencies : latencies) {
+            int count = (int) clientLatencies[0];
+            System.arraycopy(clientLatencies, 1, all, position, count);
+            position += count;
+        }
+        Arrays.sort(all);
+        return new Result(all, errors.get());
+    }
+
+    record Result(long[] sortedLatencies, long errors) {
+        long requests() {
+            return sortedLatencies.length;
+        }
+
+        double percentile(double quantile) {
+            if (sortedLatencies.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(quantile * sortedLatencies.length) - 1;
+            return sortedLatencies[Math.max(index, 0)] / 1_000_000.0;
+        }
+    }
+}
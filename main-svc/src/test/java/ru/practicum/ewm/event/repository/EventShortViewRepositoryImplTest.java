@@ -0,0 +1,140 @@
+package ru.practicum.ewm.event.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.client.hit.HitPublisher;
+import ru.practicum.ewm.category.model.Category;
+import ru.practicum.ewm.event.dto.EventShortDto;
+import ru.practicum.ewm.event.mapper.EventMapper;
+import ru.practicum.ewm.event.model.Event;
+import ru.practicum.ewm.event.model.EventShortView;
+import ru.practicum.ewm.event.model.EventStatus;
+import ru.practicum.ewm.event.service.ConfirmedRequestsReconciler;
+import ru.practicum.ewm.event.service.EventViewsCache;
+import ru.practicum.ewm.event.service.EventViewsSynchronizer;
+import ru.practicum.ewm.location.model.Location;
+import ru.practicum.ewm.user.model.User;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// проекция должна давать тот же EventShortDto, что и прежний путь через сущность Event
+@SpringBootTest
+@Transactional
+@ActiveProfiles("test")
+class EventShortViewRepositoryImplTest {
+    static final Specification<Event> PUBLISHED = (root, query, criteriaBuilder) ->
+            criteriaBuilder.equal(root.get("state"), EventStatus.PUBLISHED);
+
+    @Autowired
+    EventRepository eventRepository;
+    @Autowired
+    EntityManager entityManager;
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @MockBean
+    EventViewsCache eventViewsCache;
+    @MockBean
+    HitPublisher hitPublisher;
+    @MockBean
+    EventViewsSynchronizer eventViewsSynchronizer;
+    @MockBean
+    ConfirmedRequestsReconciler confirmedRequestsReconciler;
+
+    @BeforeEach
+    void setUp() {
+        Category sports = persist(new Category(null, "sports"));
+        Category music = persist(new Category(null, "music"));
+        User alice = persist(new User(null, "alice", "alice@mail.ru"));
+        User bob = persist(new User(null, "bob", "bob@mail.ru"));
+
+        persistEvent("match", sports, alice, 3, true, EventStatus.PUBLISHED);
+        persistEvent("concert", music, bob, 0, false, EventStatus.PUBLISHED);
+        persistEvent("cup final", sports, bob, 120, false, EventStatus.PUBLISHED);
+        persistEvent("rehearsal", music, alice, 7, true, EventStatus.PENDING);
+        persistEvent("festival", music, alice, 42, null, EventStatus.PUBLISHED);
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void projectionMatchesEntityMappingFieldForField() {
+        Pageable pageable = PageRequest.of(0, 10, Sort.by("id"));
+
+        List<EventShortDto> fromEntities = eventRepository.findAll(PUBLISHED, pageable).stream()
+                .map(EventMapper::toEventShortDto)
+                .toList();
+        entityManager.clear();
+        List<EventShortDto> fromProjection = eventRepository.findShortViews(PUBLISHED, pageable).stream()
+                .map(EventMapper::toEventShortDto)
+                .toList();
+
+        assertThat(fromEntities).hasSize(4);
+        assertThat(fromProjection).usingRecursiveComparison().isEqualTo(fromEntities);
+    }
+
+    @Test
+    void projectionAppliesOffsetAndSort() {
+        Pageable pageable = PageRequest.of(1, 2, Sort.by(Sort.Direction.DESC, "title"));
+
+        List<String> titles = eventRepository.findShortViews(PUBLISHED, pageable).stream()
+                .map(EventShortView::title)
+                .toList();
+
+        assertThat(titles).containsExactly("cup final", "concert");
+    }
+
+    // одна выборка без подсчёта общего числа и без запросов за категорией и инициатором
+    @Test
+    void projectionRunsSingleStatementWithoutManagedEntities() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        eventRepository.findShortViews(PUBLISHED, PageRequest.of(0, 10, Sort.by("id")));
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    private void persistEvent(String title, Category category, User initiator, int confirmedRequests, Boolean paid,
+                              EventStatus state) {
+        Location location = persist(new Location(null, 55.7f, 37.6f));
+        persist(Event.builder()
+                .annotation("annotation of " + title)
+                .description("description of " + title)
+                .category(category)
+                .initiator(initiator)
+                .location(location)
+                .confirmedRequests(confirmedRequests)
+                .createdOn(LocalDateTime.now())
+                .eventDate(LocalDateTime.now().plusDays(1).withNano(0))
+                .publishedOn(LocalDateTime.now())
+                .paid(paid)
+                .participantLimit(0)
+                .requestModeration(false)
+                .state(state)
+                .title(title)
+                .build());
+    }
+
+    private <T> T persist(T entity) {
+        entityManager.persist(entity);
+        return entity;
+    }
+}
@@ -0,0 +1,204 @@
+package ru.practicum.ewm.request.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import ru.practicum.client.hit.HitPublisher;
+import ru.practicum.ewm.category.model.Category;
+import ru.practicum.ewm.category.repository.CategoryRepository;
+import ru.practicum.ewm.event.dto.EventRequestStatusUpdateRequest;
+import ru.practicum.ewm.event.model.Event;
+import ru.practicum.ewm.event.model.EventStatus;
+import ru.practicum.ewm.event.repository.EventRepository;
+import ru.practicum.ewm.event.service.ConfirmedRequestsReconciler;
+import ru.practicum.ewm.event.service.EventService;
+import ru.practicum.ewm.event.service.EventViewsCache;
+import ru.practicum.ewm.event.service.EventViewsSynchronizer;
+import ru.practicum.ewm.exception.ConflictException;
+import ru.practicum.ewm.location.model.Location;
+import ru.practicum.ewm.location.repository.LocationRepository;
+import ru.practicum.ewm.request.dto.ParticipationRequestDto;
+import ru.practicum.ewm.request.model.RequestStatus;
+import ru.practicum.ewm.user.model.User;
+import ru.practicum.ewm.user.repository.UserRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// счётчик совпадает с числом подтверждённых заявок
+@SpringBootTest
+@ActiveProfiles("test")
+class ConfirmedRequestsCounterTest {
+    @Autowired
+    RequestService requestService;
+    @Autowired
+    EventService eventService;
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+    @Autowired
+    UserRepository userRepository;
+    @Autowired
+    CategoryRepository categoryRepository;
+    @Autowired
+    LocationRepository locationRepository;
+    @Autowired
+    EventRepository eventRepository;
+
+    @MockBean
+    EventViewsCache eventViewsCache;
+    @MockBean
+    HitPublisher hitPublisher;
+    @MockBean
+    EventViewsSynchronizer eventViewsSynchronizer;
+    @MockBean
+    ConfirmedRequestsReconciler confirmedRequestsReconciler;
+
+    User initiator;
+    List<User> requesters;
+
+    @BeforeEach
+    void setUp() {
+        initiator = userRepository.save(new User(null, "initiator", "initiator@mail.ru"));
+        requesters = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            requesters.add(userRepository.save(new User(null, "requester " + i, "requester" + i + "@mail.ru")));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DELETE FROM requests");
+        jdbcTemplate.execute("DELETE FROM events");
+        jdbcTemplate.execute("DELETE FROM locations");
+        jdbcTemplate.execute("DELETE FROM categories");
+        jdbcTemplate.execute("DELETE FROM users");
+    }
+
+    @Test
+    void createConfirmsWithinLimitAndCancelReleasesPlace() {
+        Event event = event(false, 2);
+        requestService.create(requesters.get(0).getId(), event.getId());
+        ParticipationRequestDto second = requestService.create(requesters.get(1).getId(), event.getId());
+
+        assertThatThrownBy(() -> requestService.create(requesters.get(2).getId(), event.getId()))
+                .isInstanceOf(ConflictException.class);
+        assertCounter(event, 2);
+
+        requestService.cancel(requesters.get(1).getId(), second.getId());
+        assertCounter(event, 1);
+
+        requestService.create(requesters.get(2).getId(), event.getId());
+        assertCounter(event, 2);
+    }
+
+    @Test
+    void cancelOfPendingRequestKeepsCounter() {
+        Event event = event(true, 2);
+        ParticipationRequestDto pending = requestService.create(requesters.get(0).getId(), event.getId());
+
+        requestService.cancel(requesters.get(0).getId(), pending.getId());
+
+        assertCounter(event, 0);
+    }
+
+    @Test
+    void approveConfirmsUpToLimitAndRejectsRest() {
+        Event event = event(true, 2);
+        Set<Long> requestIds = pendingRequests(event, 3);
+
+        Map<String, List<ParticipationRequestDto>> result = approve(event, requestIds);
+
+        assertThat(result.get("confirmedRequests")).hasSize(2);
+        assertThat(result.get("rejectedRequests")).hasSize(1);
+        assertCounter(event, 2);
+
+        ParticipationRequestDto confirmed = result.get("confirmedRequests").get(0);
+        Long requesterId = confirmed.getRequester();
+        requestService.cancel(requesterId, confirmed.getId());
+        assertCounter(event, 1);
+    }
+
+    // одновременные подтверждения не превышают лимит
+    @Test
+    void concurrentApprovalsStayWithinLimit() throws Exception {
+        Event event = event(true, 2);
+        List<Long> requestIds = new ArrayList<>(pendingRequests(event, 4));
+        CountDownLatch start = new CountDownLatch(1);
+
+        CompletableFuture<Void> first = CompletableFuture.runAsync(() -> approveAfter(start, event,
+                Set.of(requestIds.get(0), requestIds.get(1))));
+        CompletableFuture<Void> second = CompletableFuture.runAsync(() -> approveAfter(start, event,
+                Set.of(requestIds.get(2), requestIds.get(3))));
+        start.countDown();
+        CompletableFuture.allOf(first, second).handle((ignored, e) -> null).get(30, TimeUnit.SECONDS);
+
+        assertCounter(event, 2);
+    }
+
+    private void approveAfter(CountDownLatch start, Event event, Set<Long> requestIds) {
+        try {
+            start.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+        approve(event, requestIds);
+    }
+
+    private Map<String, List<ParticipationRequestDto>> approve(Event event, Set<Long> requestIds) {
+        return eventService.approveRequests(initiator.getId(), event.getId(),
+                new EventRequestStatusUpdateRequest(requestIds, RequestStatus.CONFIRMED));
+    }
+
+    private Set<Long> pendingRequests(Event event, int count) {
+        Set<Long> requestIds = new LinkedHashSet<>();
+        for (int i = 0; i < count; i++) {
+            requestIds.add(requestService.create(requesters.get(i).getId(), event.getId()).getId());
+        }
+        return requestIds;
+    }
+
+    // счётчик на событии и число подтверждённых заявок в таблице должны совпадать
+    private void assertCounter(Event event, int expected) {
+        assertThat(eventRepository.findById(event.getId()).orElseThrow().getConfirmedRequests()).isEqualTo(expected);
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM requests WHERE event_id = ? AND status = 'CONFIRMED'", Integer.class,
+                event.getId())).isEqualTo(expected);
+    }
+
+    private Event event(boolean requestModeration, int participantLimit) {
+        Category category = categoryRepository.save(new Category(null, "category"));
+        Location location = locationRepository.save(new Location(null, 55.7f, 37.6f));
+        return eventRepository.save(Event.builder()
+                .annotation("annotation of event")
+                .description("description of event")
+                .category(category)
+                .initiator(initiator)
+                .location(location)
+                .confirmedRequests(0)
+                .createdOn(LocalDateTime.now())
+                .eventDate(LocalDateTime.now().plusDays(1))
+                .publishedOn(LocalDateTime.now())
+                .paid(false)
+                .participantLimit(participantLimit)
+                .requestModeration(requestModeration)
+                .state(EventStatus.PUBLISHED)
+                .title("event")
+                .build());
+    }
+}
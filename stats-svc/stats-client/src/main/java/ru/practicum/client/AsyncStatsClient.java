@@ -0,0 +1,105 @@
+package ru.practicum.client;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.util.DefaultUriBuilderFactory;
+import ru.practicum.client.resilience.StatsCallGuard;
+import ru.practicum.client.resilience.StatsCallGuards;
+import ru.practicum.client.response.EventHits;
+import ru.practicum.client.response.StatsResponseDecoder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+// неблокирующий вариант StatsClient на HttpClient из JDK, ошибки приходят в CompletableFuture
+@Service
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class AsyncStatsClient {
+    HttpClient httpClient;
+    DefaultUriBuilderFactory uriBuilderFactory;
+    StatsCallGuard guard;
+    Duration readTimeout;
+
+    public AsyncStatsClient(@Value("${client.url}") String serviceUrl,
+                            StatsCallGuards guards,
+                            @Value("${client.http.connect-timeout:PT1S}") Duration connectTimeout,
+                            @Value("${client.http.read-timeout:PT2S}") Duration readTimeout) {
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(connectTimeout)
+                .build();
+        this.uriBuilderFactory = new DefaultUriBuilderFactory(serviceUrl);
+        this.guard = guards.getViews();
+        this.readTimeout = readTimeout;
+    }
+
+    public CompletableFuture<EventHits> getLifetimeEventHits(Collection<Long> eventIds, boolean unique,
+                                                             boolean approximate) {
+        Map<String, Object> parameters = StatsClient.eventHitsParameters(eventIds, unique, approximate);
+        HttpRequest request = jsonRequest(uriBuilderFactory.expand(StatsClient.LIFETIME_EVENT_HITS_PATH, parameters))
+                .GET()
+                .build();
+        return send(request, body -> StatsResponseDecoder.decodeEventHits(new ByteArrayInputStream(body),
+                eventIds.size()));
+    }
+
+    // тело читается целиком в массив байт, так что разбор в thenApply уже не ждёт сеть
+    private <T> CompletableFuture<T> send(HttpRequest request, BodyDecoder<T> decoder) {
+        return guard.executeAsync(() -> httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+                .handle((response, e) -> {
+                    if (e != null) {
+                        Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+                        throw new ResourceAccessException("Ошибка запроса к сервису статистики: " + cause.getMessage(),
+                                cause instanceof IOException ioException ? ioException : new IOException(cause));
+                    }
+                    checkStatus(response);
+                    try {
+                        return decoder.decode(response.body());
+                    } catch (IOException decodeException) {
+                        throw new RestClientException("Некорректный ответ сервиса статистики", decodeException);
+                    }
+                }));
+    }
+
+    private HttpRequest.Builder jsonRequest(URI uri) {
+        return HttpRequest.newBuilder(uri)
+                .timeout(readTimeout)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE);
+    }
+
+    private static void checkStatus(HttpResponse<byte[]> response) {
+        HttpStatusCode status = HttpStatusCode.valueOf(response.statusCode());
+        if (status.is4xxClientError()) {
+            throw HttpClientErrorException.create(status, "", HttpHeaders.EMPTY, response.body(),
+                    StandardCharsets.UTF_8);
+        }
+        if (!status.is2xxSuccessful()) {
+            throw HttpServerErrorException.create(status, "", HttpHeaders.EMPTY, response.body(),
+                    StandardCharsets.UTF_8);
+        }
+    }
+
+    @FunctionalInterface
+    interface BodyDecoder<T> {
+        T decode(byte[] body) throws IOException;
+    }
+}
@@ -1,44 +1,120 @@
 package ru.practicum.client;
 
+import org.apache.hc.client5.http.classic.HttpClient;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.web.util.DefaultUriBuilderFactory;
+import ru.practicum.client.response.EventHits;
+import ru.practicum.client.resilience.StatsCallGuard;
+import ru.practicum.client.resilience.StatsCallGuards;
+import ru.practicum.client.response.StatsResponseDecoder;
 import ru.practicum.dto.EndpointHitDto;
 
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 @Service
 public class StatsClient extends BaseClient {
+    static final String LIFETIME_EVENT_HITS_PATH = "/stats/events?unique={unique}&approximate={approximate}&ids={ids}";
+
+    final StatsCallGuard hitsGuard;
+    final StatsCallGuard viewsGuard;
+
     @Autowired
-    public StatsClient(@Value("${client.url}") String serviceUrl, RestTemplateBuilder builder) {
+    public StatsClient(@Value("${client.url}") String serviceUrl,
+                       RestTemplateBuilder builder,
+                       StatsCallGuards guards,
+                       @Value("${client.http.max-connections:50}") int maxConnections,
+                       @Value("${client.http.connect-timeout:PT1S}") Duration connectTimeout,
+                       @Value("${client.http.read-timeout:PT2S}") Duration readTimeout,
+                       @Value("${client.http.connection-request-timeout:PT0.5S}") Duration connectionRequestTimeout,
+                       @Value("${client.http.idle-timeout:PT30S}") Duration idleTimeout) {
         super(
                 builder
                         .uriTemplateHandler(new DefaultUriBuilderFactory(serviceUrl + ""))
-                        .requestFactory(() -> new HttpComponentsClientHttpRequestFactory())
+                        .requestFactory(() -> new HttpComponentsClientHttpRequestFactory(httpClient(maxConnections,
+                                connectTimeout, readTimeout, connectionRequestTimeout, idleTimeout)))
                         .build()
         );
+        this.hitsGuard = guards.getHits();
+        this.viewsGuard = guards.getViews();
     }
 
     public ResponseEntity<Object> create(EndpointHitDto endpointHitDto) {
-        return post("/hit", endpointHitDto);
+        return hitsGuard.execute(() -> post("/hit", endpointHitDto), StatsClient::isServerError);
+    }
+
+    public ResponseEntity<Object> createAll(List<EndpointHitDto> endpointHitDtos) {
+        return hitsGuard.execute(() -> post("/hit/batch", endpointHitDtos), StatsClient::isServerError);
     }
 
-    public ResponseEntity<Object> get(String start, String end, List<String> uris, Boolean unique) {
-        StringBuilder urisString = new StringBuilder();
+    // хиты за всё время по накопленным итогам
+    public EventHits getLifetimeEventHits(Collection<Long> eventIds, boolean unique, boolean approximate) {
+        Map<String, Object> parameters = eventHitsParameters(eventIds, unique, approximate);
+        return getEventHits(LIFETIME_EVENT_HITS_PATH, eventIds.size(), parameters);
+    }
 
-        for (String uri : uris) {
-            urisString.append("&uris=").append(uri);
-        }
-        Map<String, Object> parameters = Map.of(
-                "start", start,
-                "end", end,
-                "unique", unique
-        );
-        return get("/stats?start={start}&end={end}" + urisString + "&unique={unique}",null,parameters);
+    private EventHits getEventHits(String path, int expectedSize, Map<String, Object> parameters) {
+        return viewsGuard.execute(() -> rest.execute(path,
+                HttpMethod.GET,
+                request -> request.getHeaders().setAccept(List.of(MediaType.APPLICATION_JSON)),
+                response -> StatsResponseDecoder.decodeEventHits(response.getBody(), expectedSize),
+                parameters));
+    }
+
+    static Map<String, Object> eventHitsParameters(Collection<Long> eventIds, boolean unique,
+                                                   boolean approximate) {
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("unique", unique);
+        parameters.put("approximate", approximate);
+        parameters.put("ids", eventIds.stream()
+                .map(String::valueOf)
+                .collect(Collectors.joining(",")));
+        return parameters;
+    }
+
+    // connection-request-timeout ограничивает ожидание свободного соединения в пуле
+    private static HttpClient httpClient(int maxConnections, Duration connectTimeout, Duration readTimeout,
+                                         Duration connectionRequestTimeout, Duration idleTimeout) {
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxConnections)
+                .setMaxConnPerRoute(maxConnections)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.of(connectTimeout))
+                        .setSocketTimeout(Timeout.of(readTimeout))
+                        // сервер мог закрыть простаивающее соединение раньше нашего idle-timeout
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+                        .build())
+                .build();
+        return HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.of(connectionRequestTimeout))
+                        .setResponseTimeout(Timeout.of(readTimeout))
+                        .build())
+                .evictIdleConnections(TimeValue.of(idleTimeout))
+                .evictExpiredConnections()
+                .build();
+    }
+
+    private static boolean isServerError(ResponseEntity<Object> response) {
+        return response.getStatusCode().is5xxServerError();
     }
-}
\ No newline at end of file
+}
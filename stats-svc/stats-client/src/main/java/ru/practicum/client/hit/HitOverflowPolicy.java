@@ -0,0 +1,8 @@
+package ru.practicum.client.hit;
+
+public enum HitOverflowPolicy {
+    // хит отбрасывается сразу, если очередь заполнена
+    DROP,
+    // ждёт места не дольше client.hits.offer-timeout, затем отбрасывает хит
+    BLOCK
+}
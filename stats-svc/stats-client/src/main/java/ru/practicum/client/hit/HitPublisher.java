@@ -0,0 +1,270 @@
+package ru.practicum.client.hit;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import ru.practicum.client.StatsClient;
+import ru.practicum.dto.EndpointHitDto;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToDoubleFunction;
+
+@Slf4j
+@Service
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class HitPublisher implements SmartLifecycle {
+    // хиты копятся в ограниченной очереди, фоновый поток отправляет их пачками
+    final StatsClient statsClient;
+    final BlockingQueue<EndpointHitDto> queue;
+    final int batchSize;
+    final Duration flushInterval;
+    final HitOverflowPolicy overflowPolicy;
+    final Duration offerTimeout;
+    final HitSpool spool;
+    final long replayIntervalNanos;
+
+    final AtomicLong accepted = new AtomicLong();
+    final AtomicLong dropped = new AtomicLong();
+    final AtomicLong sent = new AtomicLong();
+    final AtomicLong failed = new AtomicLong();
+    final AtomicLong spooled = new AtomicLong();
+    final AtomicLong replayed = new AtomicLong();
+
+    volatile boolean running;
+    Thread flusher;
+    long nextReplayAt;
+
+    public HitPublisher(StatsClient statsClient,
+                        ObjectProvider<MeterRegistry> meterRegistry,
+                        @Value("${client.hits.queue-capacity:10000}") int queueCapacity,
+                        @Value("${client.hits.batch-size:500}") int batchSize,
+                        @Value("${client.hits.flush-interval:PT1S}") Duration flushInterval,
+                        @Value("${client.hits.overflow-policy:DROP}") HitOverflowPolicy overflowPolicy,
+                        @Value("${client.hits.offer-timeout:PT0.05S}") Duration offerTimeout,
+                        @Value("${client.spool.enabled:true}") boolean spoolEnabled,
+                        @Value("${client.spool.directory:${java.io.tmpdir}/ewm-hit-spool}") Path spoolDirectory,
+                        @Value("${client.spool.segment-size:4MB}") DataSize segmentSize,
+                        @Value("${client.spool.max-segments:64}") int maxSegments,
+                        @Value("${client.spool.replay-interval:PT5S}") Duration replayInterval) {
+        this.statsClient = statsClient;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.flushInterval = flushInterval;
+        this.overflowPolicy = overflowPolicy;
+        this.offerTimeout = offerTimeout;
+        // недоставленные хиты сохраняются на диск и переотправляются позже
+        this.spool = spoolEnabled
+                ? new HitSpool(spoolDirectory, (int) segmentSize.toBytes(), maxSegments)
+                : null;
+        this.replayIntervalNanos = replayInterval.toNanos();
+        meterRegistry.ifAvailable(this::bindMetrics);
+    }
+
+    public boolean publish(EndpointHitDto hit) {
+        boolean isOffered;
+        if (overflowPolicy == HitOverflowPolicy.BLOCK) {
+            try {
+                isOffered = queue.offer(hit, offerTimeout.toNanos(), TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                isOffered = false;
+            }
+        } else {
+            isOffered = queue.offer(hit);
+        }
+
+        if (isOffered) {
+            accepted.incrementAndGet();
+        } else {
+            dropped.incrementAndGet();
+        }
+        return isOffered;
+    }
+
+    public long getAcceptedCount() {
+        return accepted.get();
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    public long getSentCount() {
+        return sent.get();
+    }
+
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    public long getSpooledCount() {
+        return spooled.get();
+    }
+
+    public long getReplayedCount() {
+        return replayed.get();
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    private void bindMetrics(MeterRegistry registry) {
+        bindCounter(registry, "accepted", publisher -> publisher.accepted.get());
+        bindCounter(registry, "dropped", publisher -> publisher.dropped.get());
+        bindCounter(registry, "sent", publisher -> publisher.sent.get());
+        bindCounter(registry, "failed", publisher -> publisher.failed.get());
+        bindCounter(registry, "spooled", publisher -> publisher.spooled.get());
+        bindCounter(registry, "replayed", publisher -> publisher.replayed.get());
+        Gauge.builder("stats.client.hits.queue.size", queue, BlockingQueue::size)
+                .description("Хиты, ожидающие отправки в сервис статистики")
+                .register(registry);
+    }
+
+    private void bindCounter(MeterRegistry registry, String outcome, ToDoubleFunction<HitPublisher> count) {
+        FunctionCounter.builder("stats.client.hits", this, count)
+                .tag("outcome", outcome)
+                .description("Хиты, прошедшие через очередь отправки в сервис статистики, по итогу")
+                .register(registry);
+    }
+
+    @Override
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        flusher = new Thread(this::flushLoop, "stats-hit-publisher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        try {
+            flusher.join(flushInterval.multipliedBy(5).toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void flushLoop() {
+        List<EndpointHitDto> batch = new ArrayList<>(batchSize);
+        // после остановки дочищаем очередь, чтобы не терять хиты при штатном завершении
+        while (running || !queue.isEmpty()) {
+            try {
+                EndpointHitDto first = queue.poll(flushInterval.toNanos(), TimeUnit.NANOSECONDS);
+                // журнал разбирается по одной пачке между отправками свежих хитов, чтобы не задерживать их
+                replaySpooled();
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                send(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void send(List<EndpointHitDto> batch) {
+        try {
+            ResponseEntity<Object> response = statsClient.createAll(List.copyOf(batch));
+            HttpStatusCode status = response.getStatusCode();
+            if (status.is2xxSuccessful()) {
+                int rejected = countRejected(response, batch.size());
+                sent.addAndGet(batch.size() - rejected);
+                failed.addAndGet(rejected);
+                return;
+            }
+            // 4xx при повторе не исправится, в журнал такие пачки не пишутся
+            if (status.is4xxClientError()) {
+                failed.addAndGet(batch.size());
+                log.warn("Сервис статистики отклонил пачку из {} хитов: {}", batch.size(), status);
+                return;
+            }
+        } catch (RuntimeException e) {
+            log.warn("Не удалось отправить пачку из {} хитов: {}", batch.size(), e.getMessage());
+        }
+        spool(batch);
+    }
+
+    private void spool(List<EndpointHitDto> batch) {
+        int written = spool != null ? spool.append(batch) : 0;
+        spooled.addAndGet(written);
+        failed.addAndGet(batch.size() - written);
+        // пока сервис недоступен, журнал не переотправляется чаще replay-interval
+        nextReplayAt = System.nanoTime() + replayIntervalNanos;
+    }
+
+    private void replaySpooled() {
+        if (spool == null || spool.isEmpty() || System.nanoTime() - nextReplayAt < 0) {
+            return;
+        }
+
+        HitSpool.Batch batch = spool.read(batchSize);
+        if (batch.hits().isEmpty()) {
+            return;
+        }
+        try {
+            ResponseEntity<Object> response = statsClient.createAll(batch.hits());
+            HttpStatusCode status = response.getStatusCode();
+            if (status.is2xxSuccessful() || status.is4xxClientError()) {
+                spool.acknowledge(batch);
+                if (status.is2xxSuccessful()) {
+                    int rejected = countRejected(response, batch.hits().size());
+                    replayed.addAndGet(batch.hits().size() - rejected);
+                    failed.addAndGet(rejected);
+                } else {
+                    failed.addAndGet(batch.hits().size());
+                }
+                return;
+            }
+        } catch (RuntimeException e) {
+            log.warn("Не удалось переотправить {} хитов из журнала: {}", batch.hits().size(), e.getMessage());
+        }
+        nextReplayAt = System.nanoTime() + replayIntervalNanos;
+    }
+
+    // некорректные хиты сервер пропускает и возвращает их число в поле rejected
+    private static int countRejected(ResponseEntity<Object> response, int batchSize) {
+        if (response.getBody() instanceof Map<?, ?> result && result.get("rejected") instanceof Number rejected) {
+            if (rejected.intValue() > 0) {
+                log.warn("Сервис статистики пропустил {} некорректных хитов из {}", rejected, batchSize);
+            }
+            return rejected.intValue();
+        }
+        return 0;
+    }
+}
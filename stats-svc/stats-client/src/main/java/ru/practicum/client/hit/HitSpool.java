@@ -0,0 +1,269 @@
+package ru.practicum.client.hit;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import ru.practicum.dto.EndpointHitDto;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.stream.Stream;
+
+// журнал неотправленных хитов в отображённых в память сегментах
+@Slf4j
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class HitSpool {
+    static final String SEGMENT_PREFIX = "hits-";
+    static final String SEGMENT_SUFFIX = ".spool";
+    static final int HEADER_SIZE = Long.BYTES;
+    static final int END_OF_DATA = 0;
+
+    final Path directory;
+    final int segmentSize;
+    final int maxSegments;
+    final Deque<Segment> segments = new ArrayDeque<>();
+    long nextSequence;
+
+    public HitSpool(Path directory, int segmentSize, int maxSegments) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maxSegments = maxSegments;
+        try {
+            Files.createDirectories(directory);
+            openExistingSegments();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось открыть журнал хитов в " + directory, e);
+        }
+    }
+
+    public synchronized boolean isEmpty() {
+        return segments.stream().allMatch(Segment::isDrained);
+    }
+
+    // меньше размера пачки, если журнал занял max-segments сегментов
+    public synchronized int append(List<EndpointHitDto> hits) {
+        int written = 0;
+        try {
+            for (EndpointHitDto hit : hits) {
+                byte[] record = encode(hit);
+                if (Integer.BYTES + record.length > segmentSize - HEADER_SIZE) {
+                    log.warn("Хит длиной {} байт не помещается в сегмент журнала", record.length);
+                    continue;
+                }
+                Segment segment = segments.peekLast();
+                if (segment == null || segment.sealed || !segment.fits(record.length)) {
+                    if (segment != null) {
+                        segment.sealed = true;
+                        segment.buffer.force();
+                    }
+                    if (segments.size() >= maxSegments) {
+                        break;
+                    }
+                    segment = createSegment();
+                }
+                segment.write(record);
+                written++;
+            }
+        } catch (IOException e) {
+            log.warn("Не удалось записать хиты в журнал: {}", e.getMessage());
+        }
+
+        Segment last = segments.peekLast();
+        if (last != null && !last.sealed) {
+            last.buffer.force();
+        }
+        return written;
+    }
+
+    // до maxRecords неподтверждённых хитов из самого старого сегмента
+    synchronized Batch read(int maxRecords) {
+        dropDrainedSegments();
+        Segment segment = segments.peekFirst();
+        if (segment == null) {
+            return new Batch(null, List.of(), 0);
+        }
+
+        List<EndpointHitDto> hits = new ArrayList<>(maxRecords);
+        int position = segment.readPosition;
+        while (hits.size() < maxRecords && position < segment.writePosition) {
+            int length = segment.buffer.getInt(position);
+            hits.add(decode(segment.buffer.slice(position + Integer.BYTES, length)));
+            position += Integer.BYTES + length;
+        }
+        return new Batch(segment, hits, position);
+    }
+
+    // отмечает пачку доставленной; полностью доставленный закрытый сегмент удаляется
+    synchronized void acknowledge(Batch batch) {
+        if (batch.segment() == null) {
+            return;
+        }
+        batch.segment().commitReadPosition(batch.nextPosition());
+        dropDrainedSegments();
+    }
+
+    private void dropDrainedSegments() {
+        while (!segments.isEmpty() && segments.peekFirst().sealed && segments.peekFirst().isDrained()) {
+            Segment segment = segments.pollFirst();
+            try {
+                Files.deleteIfExists(segment.path);
+            } catch (IOException e) {
+                log.warn("Не удалось удалить сегмент журнала {}: {}", segment.path, e.getMessage());
+            }
+        }
+    }
+
+    // сегменты прошлого запуска только дочитываются
+    private void openExistingSegments() throws IOException {
+        List<Path> paths;
+        try (Stream<Path> files = Files.list(directory)) {
+            paths = files
+                    .filter(path -> path.getFileName().toString().startsWith(SEGMENT_PREFIX))
+                    .filter(path -> path.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .toList();
+        }
+        for (Path path : paths) {
+            Segment segment = new Segment(path, map(path, Files.size(path)));
+            segment.sealed = true;
+            segment.recover();
+            segments.addLast(segment);
+            nextSequence = Math.max(nextSequence, parseSequence(path) + 1);
+        }
+        dropDrainedSegments();
+    }
+
+    private Segment createSegment() throws IOException {
+        Path path = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, nextSequence++, SEGMENT_SUFFIX));
+        Segment segment = new Segment(path, map(path, segmentSize));
+        segment.readPosition = HEADER_SIZE;
+        segment.writePosition = HEADER_SIZE;
+        segment.commitReadPosition(HEADER_SIZE);
+        segments.addLast(segment);
+        return segment;
+    }
+
+    private static MappedByteBuffer map(Path path, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    private static long parseSequence(Path path) {
+        String name = path.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    // запись: длина полезной части, затем app, uri, ip строками с длиной и время хита
+    private static byte[] encode(EndpointHitDto hit) {
+        byte[] app = bytes(hit.getApp());
+        byte[] uri = bytes(hit.getUri());
+        byte[] ip = bytes(hit.getIp());
+        ByteBuffer buffer = ByteBuffer.allocate(3 * Integer.BYTES + app.length + uri.length
+                + ip.length + Long.BYTES + Integer.BYTES);
+        putString(buffer, app);
+        putString(buffer, uri);
+        putString(buffer, ip);
+        buffer.putLong(hit.getTimestamp().toEpochSecond(ZoneOffset.UTC));
+        buffer.putInt(hit.getTimestamp().getNano());
+        return buffer.array();
+    }
+
+    private static EndpointHitDto decode(ByteBuffer buffer) {
+        String app = getString(buffer);
+        String uri = getString(buffer);
+        String ip = getString(buffer);
+        LocalDateTime timestamp = LocalDateTime.ofEpochSecond(buffer.getLong(), buffer.getInt(), ZoneOffset.UTC);
+        return EndpointHitDto.builder()
+                .app(app)
+                .uri(uri)
+                .ip(ip)
+                .timestamp(timestamp)
+                .build();
+    }
+
+    private static byte[] bytes(String value) {
+        return value != null ? value.getBytes(StandardCharsets.UTF_8) : new byte[0];
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] value) {
+        buffer.putInt(value.length);
+        buffer.put(value);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        byte[] value = new byte[buffer.getInt()];
+        buffer.get(value);
+        return new String(value, StandardCharsets.UTF_8);
+    }
+
+    record Batch(Segment segment, List<EndpointHitDto> hits, int nextPosition) {
+    }
+
+    @FieldDefaults(level = AccessLevel.PRIVATE)
+    static final class Segment {
+        final Path path;
+        final MappedByteBuffer buffer;
+        boolean sealed;
+        int readPosition;
+        int writePosition;
+
+        Segment(Path path, MappedByteBuffer buffer) {
+            this.path = path;
+            this.buffer = buffer;
+        }
+
+        boolean fits(int recordLength) {
+            return writePosition + Integer.BYTES + recordLength <= buffer.capacity();
+        }
+
+        void write(byte[] record) {
+            buffer.put(writePosition + Integer.BYTES, record);
+            // длина пишется последней: оборванная при сбое запись выглядит как конец данных
+            buffer.putInt(writePosition, record.length);
+            writePosition += Integer.BYTES + record.length;
+        }
+
+        boolean isDrained() {
+            return readPosition >= writePosition;
+        }
+
+        void commitReadPosition(int position) {
+            readPosition = position;
+            buffer.putLong(0, position);
+            buffer.force(0, HEADER_SIZE);
+        }
+
+        // конец данных — первая нулевая длина или запись, выходящая за границу сегмента
+        void recover() {
+            readPosition = (int) Math.max(HEADER_SIZE, Math.min(buffer.getLong(0), buffer.capacity()));
+            int position = HEADER_SIZE;
+            while (position + Integer.BYTES <= buffer.capacity()) {
+                int length = buffer.getInt(position);
+                if (length <= END_OF_DATA || position + Integer.BYTES + length > buffer.capacity()) {
+                    break;
+                }
+                position += Integer.BYTES + length;
+            }
+            writePosition = position;
+        }
+    }
+}
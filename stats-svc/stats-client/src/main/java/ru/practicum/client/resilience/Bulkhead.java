@@ -0,0 +1,48 @@
+package ru.practicum.client.resilience;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// не больше max-concurrent-calls одновременных вызовов, остальные ждут не дольше max-wait
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class Bulkhead {
+    Semaphore permits;
+    long maxWaitNanos;
+    AtomicLong rejected = new AtomicLong();
+
+    public Bulkhead(int maxConcurrentCalls, Duration maxWait) {
+        this.permits = new Semaphore(maxConcurrentCalls);
+        this.maxWaitNanos = maxWait.toNanos();
+    }
+
+    public void acquire() {
+        boolean isAcquired;
+        try {
+            isAcquired = permits.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            isAcquired = false;
+        }
+        if (!isAcquired) {
+            rejected.incrementAndGet();
+            throw new CallRejectedException("Сервис статистики недоступен: превышено число одновременных запросов");
+        }
+    }
+
+    public void release() {
+        permits.release();
+    }
+
+    public int getAvailablePermits() {
+        return permits.availablePermits();
+    }
+
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+}
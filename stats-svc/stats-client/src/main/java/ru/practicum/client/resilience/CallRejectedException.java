@@ -0,0 +1,10 @@
+package ru.practicum.client.resilience;
+
+import org.springframework.web.client.RestClientException;
+
+// обрабатывается так же, как недоступность сервиса
+public class CallRejectedException extends RestClientException {
+    public CallRejectedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,125 @@
+package ru.practicum.client.resilience;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+// цепь открывается, когда доля отказов среди последних window-size вызовов достигает порога
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class CircuitBreaker {
+    final int failureRateThreshold;
+    final int minimumCalls;
+    final long openDurationNanos;
+    final int halfOpenCalls;
+    final boolean[] outcomes;
+    final LongSupplier nanoClock;
+    final AtomicLong rejected = new AtomicLong();
+
+    CircuitState state = CircuitState.CLOSED;
+    int recorded;
+    int nextOutcome;
+    int failures;
+    long openedAt;
+    int halfOpenPermits;
+    int halfOpenSuccesses;
+
+    public CircuitBreaker(int failureRateThreshold, int windowSize, int minimumCalls, Duration openDuration,
+                          int halfOpenCalls) {
+        this(failureRateThreshold, windowSize, minimumCalls, openDuration, halfOpenCalls, System::nanoTime);
+    }
+
+    // часы подменяются в тестах, чтобы проверять open-duration без ожидания
+    CircuitBreaker(int failureRateThreshold, int windowSize, int minimumCalls, Duration openDuration,
+                   int halfOpenCalls, LongSupplier nanoClock) {
+        this.failureRateThreshold = failureRateThreshold;
+        this.minimumCalls = Math.min(minimumCalls, windowSize);
+        this.openDurationNanos = openDuration.toNanos();
+        this.halfOpenCalls = halfOpenCalls;
+        this.outcomes = new boolean[windowSize];
+        this.nanoClock = nanoClock;
+    }
+
+    public synchronized void acquirePermission() {
+        if (state == CircuitState.OPEN) {
+            if (nanoClock.getAsLong() - openedAt < openDurationNanos) {
+                rejected.incrementAndGet();
+                throw new CallRejectedException("Сервис статистики недоступен: цепь разомкнута");
+            }
+            state = CircuitState.HALF_OPEN;
+            halfOpenPermits = halfOpenCalls;
+            halfOpenSuccesses = 0;
+        }
+        if (state == CircuitState.HALF_OPEN) {
+            if (halfOpenPermits == 0) {
+                rejected.incrementAndGet();
+                throw new CallRejectedException("Сервис статистики недоступен: идут пробные запросы");
+            }
+            halfOpenPermits--;
+        }
+    }
+
+    public synchronized void releasePermission() {
+        if (state == CircuitState.HALF_OPEN) {
+            halfOpenPermits++;
+        }
+    }
+
+    public synchronized void onSuccess() {
+        if (state == CircuitState.HALF_OPEN) {
+            if (++halfOpenSuccesses >= halfOpenCalls) {
+                close();
+            }
+        } else if (state == CircuitState.CLOSED) {
+            record(false);
+        }
+    }
+
+    public synchronized void onFailure() {
+        if (state == CircuitState.HALF_OPEN) {
+            open();
+        } else if (state == CircuitState.CLOSED) {
+            record(true);
+            if (recorded >= minimumCalls && failures * 100L >= (long) failureRateThreshold * recorded) {
+                open();
+            }
+        }
+    }
+
+    public synchronized CircuitState getState() {
+        return state;
+    }
+
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    private void record(boolean isFailure) {
+        if (recorded == outcomes.length) {
+            if (outcomes[nextOutcome]) {
+                failures--;
+            }
+        } else {
+            recorded++;
+        }
+        outcomes[nextOutcome] = isFailure;
+        if (isFailure) {
+            failures++;
+        }
+        nextOutcome = (nextOutcome + 1) % outcomes.length;
+    }
+
+    private void open() {
+        state = CircuitState.OPEN;
+        openedAt = nanoClock.getAsLong();
+    }
+
+    private void close() {
+        state = CircuitState.CLOSED;
+        recorded = 0;
+        nextOutcome = 0;
+        failures = 0;
+    }
+}
@@ -0,0 +1,10 @@
+package ru.practicum.client.resilience;
+
+public enum CircuitState {
+    // вызовы проходят, результаты копятся в скользящем окне
+    CLOSED,
+    // вызовы сразу отклоняются до истечения open-duration
+    OPEN,
+    // пробные вызовы: успех закрывает цепь, отказ снова открывает
+    HALF_OPEN
+}
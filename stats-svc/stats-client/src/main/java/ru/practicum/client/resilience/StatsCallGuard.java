@@ -0,0 +1,120 @@
+package ru.practicum.client.resilience;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+// bulkhead и circuit breaker одного класса вызовов к сервису статистики
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class StatsCallGuard {
+    String name;
+    CircuitBreaker circuitBreaker;
+    Bulkhead bulkhead;
+
+    public StatsCallGuard(String name, CircuitBreaker circuitBreaker, Bulkhead bulkhead) {
+        this.name = name;
+        this.circuitBreaker = circuitBreaker;
+        this.bulkhead = bulkhead;
+    }
+
+    public <T> T execute(Supplier<T> call) {
+        return execute(call, result -> false);
+    }
+
+    // isFailure отмечает отказом ответы без исключения, например 5xx из BaseClient; 4xx цепь не размыкают
+    public <T> T execute(Supplier<T> call, Predicate<T> isFailure) {
+        circuitBreaker.acquirePermission();
+        try {
+            bulkhead.acquire();
+        } catch (CallRejectedException e) {
+            // вызов не состоялся, поэтому разрешение возвращается без записи результата
+            circuitBreaker.releasePermission();
+            throw e;
+        }
+
+        try {
+            T result = call.get();
+            if (isFailure.test(result)) {
+                circuitBreaker.onFailure();
+            } else {
+                circuitBreaker.onSuccess();
+            }
+            return result;
+        } catch (HttpClientErrorException e) {
+            circuitBreaker.onSuccess();
+            throw e;
+        } catch (RuntimeException e) {
+            circuitBreaker.onFailure();
+            throw e;
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    // место в bulkhead занято, пока результат не завершится
+    public <T> CompletableFuture<T> executeAsync(Supplier<CompletableFuture<T>> call) {
+        try {
+            circuitBreaker.acquirePermission();
+        } catch (CallRejectedException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        try {
+            bulkhead.acquire();
+        } catch (CallRejectedException e) {
+            circuitBreaker.releasePermission();
+            return CompletableFuture.failedFuture(e);
+        }
+
+        CompletableFuture<T> future;
+        try {
+            future = call.get();
+        } catch (RuntimeException e) {
+            bulkhead.release();
+            circuitBreaker.onFailure();
+            return CompletableFuture.failedFuture(e);
+        }
+        return future.whenComplete((result, e) -> {
+            bulkhead.release();
+            Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+            if (e == null || cause instanceof HttpClientErrorException) {
+                circuitBreaker.onSuccess();
+            } else {
+                circuitBreaker.onFailure();
+            }
+        });
+    }
+
+    public CircuitState getState() {
+        return circuitBreaker.getState();
+    }
+
+    void bindMetrics(MeterRegistry registry) {
+        for (CircuitState state : CircuitState.values()) {
+            Gauge.builder("stats.client.circuit.state", circuitBreaker, breaker -> breaker.getState() == state ? 1 : 0)
+                    .tag("calls", name)
+                    .tag("state", state.name().toLowerCase())
+                    .description("1 для текущего состояния цепи вызовов сервиса статистики")
+                    .register(registry);
+        }
+        Gauge.builder("stats.client.bulkhead.available", bulkhead, Bulkhead::getAvailablePermits)
+                .tag("calls", name)
+                .description("Свободные места для одновременных вызовов сервиса статистики")
+                .register(registry);
+        FunctionCounter.builder("stats.client.calls.rejected", circuitBreaker, CircuitBreaker::getRejectedCount)
+                .tag("calls", name)
+                .tag("reason", "circuit_open")
+                .register(registry);
+        FunctionCounter.builder("stats.client.calls.rejected", bulkhead, Bulkhead::getRejectedCount)
+                .tag("calls", name)
+                .tag("reason", "bulkhead_full")
+                .register(registry);
+    }
+}
@@ -0,0 +1,40 @@
+package ru.practicum.client.resilience;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+// отдельные охранники для отправки хитов и чтения просмотров
+@Getter
+@Component
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class StatsCallGuards {
+    StatsCallGuard hits;
+    StatsCallGuard views;
+
+    public StatsCallGuards(ObjectProvider<MeterRegistry> meterRegistry,
+                           @Value("${client.circuit.failure-rate-threshold:50}") int failureRateThreshold,
+                           @Value("${client.circuit.window-size:20}") int windowSize,
+                           @Value("${client.circuit.minimum-calls:10}") int minimumCalls,
+                           @Value("${client.circuit.open-duration:PT10S}") Duration openDuration,
+                           @Value("${client.circuit.half-open-calls:3}") int halfOpenCalls,
+                           @Value("${client.bulkhead.max-concurrent-calls:20}") int maxConcurrentCalls,
+                           @Value("${client.bulkhead.max-wait:PT0S}") Duration maxWait) {
+        this.hits = new StatsCallGuard("hits",
+                new CircuitBreaker(failureRateThreshold, windowSize, minimumCalls, openDuration, halfOpenCalls),
+                new Bulkhead(maxConcurrentCalls, maxWait));
+        this.views = new StatsCallGuard("views",
+                new CircuitBreaker(failureRateThreshold, windowSize, minimumCalls, openDuration, halfOpenCalls),
+                new Bulkhead(maxConcurrentCalls, maxWait));
+        meterRegistry.ifAvailable(registry -> {
+            hits.bindMetrics(registry);
+            views.bindMetrics(registry);
+        });
+    }
+}
@@ -0,0 +1,89 @@
+package ru.practicum.client.response;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+
+// открытая адресация на массивах long; ключ 0 означает пустую ячейку
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class EventHits {
+    static final int MIN_CAPACITY = 16;
+
+    long[] keys;
+    long[] values;
+    int size;
+
+    public EventHits() {
+        this(MIN_CAPACITY);
+    }
+
+    public EventHits(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(MIN_CAPACITY, expectedSize * 2) - 1) << 1;
+        keys = new long[capacity];
+        values = new long[capacity];
+    }
+
+    public long get(long eventId) {
+        int index = indexOf(keys, eventId);
+        return keys[index] == eventId ? values[index] : 0L;
+    }
+
+    public boolean contains(long eventId) {
+        return eventId > 0 && keys[indexOf(keys, eventId)] == eventId;
+    }
+
+    public void add(long eventId, long hits) {
+        if (eventId <= 0) {
+            throw new IllegalArgumentException("id события должен быть положительным: " + eventId);
+        }
+        int index = indexOf(keys, eventId);
+        if (keys[index] == eventId) {
+            values[index] += hits;
+            return;
+        }
+        keys[index] = eventId;
+        values[index] = hits;
+        if (++size * 2 > keys.length) {
+            resize();
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void forEach(EntryConsumer consumer) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0) {
+                consumer.accept(keys[i], values[i]);
+            }
+        }
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new long[oldValues.length * 2];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                int index = indexOf(keys, oldKeys[i]);
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+            }
+        }
+    }
+
+    private static int indexOf(long[] keys, long eventId) {
+        int mask = keys.length - 1;
+        int index = Long.hashCode(eventId * 0x9E3779B97F4A7C15L) & mask;
+        while (keys[index] != 0 && keys[index] != eventId) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    @FunctionalInterface
+    public interface EntryConsumer {
+        void accept(long eventId, long hits);
+    }
+}
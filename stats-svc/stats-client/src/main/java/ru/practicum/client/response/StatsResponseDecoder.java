@@ -0,0 +1,31 @@
+package ru.practicum.client.response;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+// потоковый разбор без промежуточных LinkedHashMap
+public class StatsResponseDecoder {
+    static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    // ответ /stats/events: объект, в котором имена полей — id событий, значения — хиты
+    public static EventHits decodeEventHits(InputStream body, int expectedSize) throws IOException {
+        EventHits result = new EventHits(expectedSize);
+        try (JsonParser parser = JSON_FACTORY.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Ожидался JSON-объект просмотров событий, получено: " + parser.currentToken());
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                long eventId = Long.parseLong(parser.currentName());
+                parser.nextToken();
+                result.add(eventId, parser.getValueAsLong());
+            }
+        } catch (NumberFormatException e) {
+            throw new IOException("Некорректный id события в ответе сервиса статистики", e);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,159 @@
+package ru.practicum.client.hit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.practicum.dto.EndpointHitDto;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HitSpoolTest {
+    static final int SEGMENT_SIZE = 4096;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readsBackAppendedHitsInOrder() {
+        HitSpool spool = new HitSpool(directory, SEGMENT_SIZE, 4);
+        List<EndpointHitDto> hits = List.of(
+                hit(1),
+                EndpointHitDto.builder()
+                        .app("ewm-main-service")
+                        .uri("/events/42?текст=футбол")
+                        .ip("2001:db8::1")
+                        .timestamp(LocalDateTime.of(2026, 1, 2, 3, 4, 5, 123_456_789))
+                        .build());
+
+        assertThat(spool.append(hits)).isEqualTo(2);
+        assertThat(spool.isEmpty()).isFalse();
+        assertHits(spool.read(10).hits(), hits);
+    }
+
+    @Test
+    void replaysOnlyUnacknowledgedHitsAfterReopen() {
+        HitSpool spool = new HitSpool(directory, SEGMENT_SIZE, 4);
+        spool.append(hits(0, 5));
+        spool.acknowledge(spool.read(3));
+
+        HitSpool reopened = new HitSpool(directory, SEGMENT_SIZE, 4);
+
+        assertHits(reopened.read(10).hits(), hits(3, 5));
+    }
+
+    // файл обрезан посреди последней записи: её длина указывает за границу сегмента
+    @Test
+    void dropsRecordTruncatedMidWriteOnReopen() throws IOException {
+        HitSpool spool = new HitSpool(directory, SEGMENT_SIZE, 4);
+        spool.append(hits(0, 3));
+        Path segment = singleSegment();
+        int lastRecord = recordOffset(segment, 2);
+
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(lastRecord + Integer.BYTES + 5);
+        }
+        HitSpool reopened = new HitSpool(directory, SEGMENT_SIZE, 4);
+
+        assertHits(reopened.read(10).hits(), hits(0, 2));
+    }
+
+    // длина пишется последней: если сбой случился до неё, запись читается как конец данных
+    @Test
+    void treatsRecordWithoutLengthAsEndOfData() throws IOException {
+        HitSpool spool = new HitSpool(directory, SEGMENT_SIZE, 4);
+        spool.append(hits(0, 3));
+        Path segment = singleSegment();
+        int lastRecord = recordOffset(segment, 2);
+
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(Integer.BYTES), lastRecord);
+        }
+        HitSpool reopened = new HitSpool(directory, SEGMENT_SIZE, 4);
+
+        assertHits(reopened.read(10).hits(), hits(0, 2));
+    }
+
+    // после перезапуска старые сегменты только дочитываются, новые хиты идут следом за ними
+    @Test
+    void appendsAfterReopenGoToNewSegmentBehindRecoveredOnes() throws IOException {
+        HitSpool spool = new HitSpool(directory, SEGMENT_SIZE, 4);
+        spool.append(hits(0, 2));
+
+        HitSpool reopened = new HitSpool(directory, SEGMENT_SIZE, 4);
+        reopened.append(hits(2, 4));
+
+        assertThat(segments()).hasSize(2);
+        HitSpool.Batch recovered = reopened.read(10);
+        assertHits(recovered.hits(), hits(0, 2));
+        reopened.acknowledge(recovered);
+        assertThat(segments()).hasSize(1);
+        assertHits(reopened.read(10).hits(), hits(2, 4));
+    }
+
+    @Test
+    void stopsAcceptingHitsWhenMaxSegmentsAreFull() {
+        HitSpool spool = new HitSpool(directory, 256, 2);
+
+        int written = spool.append(hits(0, 100));
+
+        assertThat(written).isPositive().isLessThan(100);
+        HitSpool.Batch first = spool.read(100);
+        spool.acknowledge(first);
+        HitSpool.Batch second = spool.read(100);
+        spool.acknowledge(second);
+        assertThat(first.hits().size() + second.hits().size()).isEqualTo(written);
+        assertThat(spool.isEmpty()).isTrue();
+    }
+
+    // у EndpointHitDto нет equals, поэтому хиты сравниваются по полям
+    private static void assertHits(List<EndpointHitDto> actual, List<EndpointHitDto> expected) {
+        assertThat(actual).usingRecursiveFieldByFieldElementComparator().containsExactlyElementsOf(expected);
+    }
+
+    private static List<EndpointHitDto> hits(int from, int to) {
+        return IntStream.range(from, to)
+                .mapToObj(HitSpoolTest::hit)
+                .toList();
+    }
+
+    private static EndpointHitDto hit(int i) {
+        return EndpointHitDto.builder()
+                .app("ewm-main-service")
+                .uri("/events/" + i)
+                .ip("10.0.0." + i)
+                .timestamp(LocalDateTime.of(2026, 1, 1, 0, 0).plusSeconds(i))
+                .build();
+    }
+
+    private Path singleSegment() throws IOException {
+        List<Path> segments = segments();
+        assertThat(segments).hasSize(1);
+        return segments.get(0);
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().toList();
+        }
+    }
+
+    // смещение записи с номером index
+    private static int recordOffset(Path segment, int index) throws IOException {
+        ByteBuffer content = ByteBuffer.wrap(Files.readAllBytes(segment));
+        int position = HitSpool.HEADER_SIZE;
+        for (int i = 0; i < index; i++) {
+            position += Integer.BYTES + content.getInt(position);
+        }
+        return position;
+    }
+}
@@ -0,0 +1,60 @@
+package ru.practicum.client.resilience;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BulkheadTest {
+
+    @Test
+    void rejectsImmediatelyWhenFullWithoutWait() {
+        Bulkhead bulkhead = new Bulkhead(2, Duration.ZERO);
+        bulkhead.acquire();
+        bulkhead.acquire();
+
+        assertThatThrownBy(bulkhead::acquire).isInstanceOf(CallRejectedException.class);
+        assertThat(bulkhead.getRejectedCount()).isEqualTo(1);
+        assertThat(bulkhead.getAvailablePermits()).isZero();
+
+        bulkhead.release();
+        bulkhead.acquire();
+        assertThat(bulkhead.getRejectedCount()).isEqualTo(1);
+    }
+
+    // ожидающий вызов получает место, освобождённое в пределах max-wait
+    @Test
+    void waitingCallGetsPlaceReleasedWithinMaxWait() throws InterruptedException {
+        Bulkhead bulkhead = new Bulkhead(1, Duration.ofSeconds(10));
+        bulkhead.acquire();
+        CountDownLatch acquired = new CountDownLatch(1);
+
+        Thread waiter = Thread.ofVirtual().start(() -> {
+            bulkhead.acquire();
+            acquired.countDown();
+        });
+        bulkhead.release();
+
+        assertThat(acquired.await(10, TimeUnit.SECONDS)).isTrue();
+        waiter.join();
+        assertThat(bulkhead.getRejectedCount()).isZero();
+    }
+
+    @Test
+    void interruptedWaitIsRejected() {
+        Bulkhead bulkhead = new Bulkhead(1, Duration.ofSeconds(10));
+        bulkhead.acquire();
+        Thread.currentThread().interrupt();
+
+        try {
+            assertThatThrownBy(bulkhead::acquire).isInstanceOf(CallRejectedException.class);
+            assertThat(Thread.currentThread().isInterrupted()).isTrue();
+        } finally {
+            Thread.interrupted();
+        }
+    }
+}
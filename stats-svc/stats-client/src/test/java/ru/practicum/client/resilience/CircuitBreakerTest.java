@@ -0,0 +1,140 @@
+package ru.practicum.client.resilience;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CircuitBreakerTest {
+    static final Duration OPEN_DURATION = Duration.ofSeconds(10);
+
+    // часы двигает тест, поэтому open-duration проверяется без ожидания
+    final AtomicLong now = new AtomicLong();
+    final CircuitBreaker breaker = new CircuitBreaker(50, 4, 2, OPEN_DURATION, 2, now::get);
+
+    @Test
+    void staysClosedUntilMinimumCallsAreRecorded() {
+        call(true);
+
+        assertThat(breaker.getState()).isEqualTo(CircuitState.CLOSED);
+    }
+
+    @Test
+    void opensWhenFailureRateReachesThreshold() {
+        call(false);
+        call(true);
+
+        assertThat(breaker.getState()).isEqualTo(CircuitState.OPEN);
+    }
+
+    @Test
+    void staysClosedBelowThreshold() {
+        call(false);
+        call(false);
+        call(true);
+
+        assertThat(breaker.getState()).isEqualTo(CircuitState.CLOSED);
+    }
+
+    // отказ, вытесненный из окна, в долю отказов не входит
+    @Test
+    void oldFailuresLeaveTheWindow() {
+        CircuitBreaker slidingBreaker = new CircuitBreaker(50, 4, 4, OPEN_DURATION, 2, now::get);
+        slidingBreaker.acquirePermission();
+        slidingBreaker.onFailure();
+        for (int i = 0; i < 4; i++) {
+            slidingBreaker.acquirePermission();
+            slidingBreaker.onSuccess();
+        }
+
+        slidingBreaker.acquirePermission();
+        slidingBreaker.onFailure();
+
+        assertThat(slidingBreaker.getState()).isEqualTo(CircuitState.CLOSED);
+    }
+
+    @Test
+    void rejectsCallsWhileOpen() {
+        open();
+        now.addAndGet(OPEN_DURATION.toNanos() - 1);
+
+        assertThatThrownBy(breaker::acquirePermission).isInstanceOf(CallRejectedException.class);
+        assertThat(breaker.getRejectedCount()).isEqualTo(1);
+    }
+
+    @Test
+    void letsLimitedProbesThroughAfterOpenDuration() {
+        open();
+        now.addAndGet(OPEN_DURATION.toNanos());
+
+        breaker.acquirePermission();
+        breaker.acquirePermission();
+
+        assertThat(breaker.getState()).isEqualTo(CircuitState.HALF_OPEN);
+        assertThatThrownBy(breaker::acquirePermission).isInstanceOf(CallRejectedException.class);
+    }
+
+    @Test
+    void closesWhenAllProbesSucceed() {
+        open();
+        now.addAndGet(OPEN_DURATION.toNanos());
+
+        breaker.acquirePermission();
+        breaker.onSuccess();
+        breaker.acquirePermission();
+        breaker.onSuccess();
+
+        assertThat(breaker.getState()).isEqualTo(CircuitState.CLOSED);
+        // окно после закрытия пустое: один отказ не размыкает цепь снова
+        call(true);
+        assertThat(breaker.getState()).isEqualTo(CircuitState.CLOSED);
+    }
+
+    @Test
+    void reopensOnFailedProbeAndRestartsOpenDuration() {
+        open();
+        now.addAndGet(OPEN_DURATION.toNanos());
+
+        breaker.acquirePermission();
+        breaker.onFailure();
+
+        assertThat(breaker.getState()).isEqualTo(CircuitState.OPEN);
+        now.addAndGet(OPEN_DURATION.toNanos() - 1);
+        assertThatThrownBy(breaker::acquirePermission).isInstanceOf(CallRejectedException.class);
+        now.addAndGet(1);
+        breaker.acquirePermission();
+        assertThat(breaker.getState()).isEqualTo(CircuitState.HALF_OPEN);
+    }
+
+    // неиспользованное пробное разрешение достаётся следующему вызову
+    @Test
+    void releasedProbeCanBeReused() {
+        open();
+        now.addAndGet(OPEN_DURATION.toNanos());
+        breaker.acquirePermission();
+        breaker.acquirePermission();
+
+        breaker.releasePermission();
+
+        breaker.acquirePermission();
+        assertThatThrownBy(breaker::acquirePermission).isInstanceOf(CallRejectedException.class);
+    }
+
+    private void open() {
+        call(true);
+        call(true);
+        assertThat(breaker.getState()).isEqualTo(CircuitState.OPEN);
+    }
+
+    private void call(boolean isFailure) {
+        breaker.acquirePermission();
+        if (isFailure) {
+            breaker.onFailure();
+        } else {
+            breaker.onSuccess();
+        }
+    }
+}
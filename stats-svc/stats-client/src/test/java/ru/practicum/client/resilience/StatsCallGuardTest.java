@@ -0,0 +1,125 @@
+package ru.practicum.client.resilience;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StatsCallGuardTest {
+    static final Duration OPEN_DURATION = Duration.ofSeconds(10);
+
+    final AtomicLong now = new AtomicLong();
+    final CircuitBreaker breaker = new CircuitBreaker(50, 4, 2, OPEN_DURATION, 1, now::get);
+    final Bulkhead bulkhead = new Bulkhead(1, Duration.ZERO);
+    final StatsCallGuard guard = new StatsCallGuard("views", breaker, bulkhead);
+
+    @Test
+    void bulkheadRejectsCallsBeyondLimitAndFreesPlaceAfterCall() {
+        String nested = guard.execute(() -> {
+            assertThatThrownBy(() -> guard.execute(() -> "nested")).isInstanceOf(CallRejectedException.class);
+            return "outer";
+        });
+
+        assertThat(nested).isEqualTo("outer");
+        assertThat(bulkhead.getRejectedCount()).isEqualTo(1);
+        assertThat(guard.execute(() -> "next")).isEqualTo("next");
+    }
+
+    // запрос, отклонённый bulkhead, не тратит пробное разрешение полуоткрытой цепи
+    @Test
+    void bulkheadRejectionReturnsHalfOpenProbe() {
+        openCircuit();
+        now.addAndGet(OPEN_DURATION.toNanos());
+        bulkhead.acquire();
+
+        assertThatThrownBy(() -> guard.execute(() -> "probe")).isInstanceOf(CallRejectedException.class);
+        bulkhead.release();
+
+        assertThat(guard.execute(() -> "probe")).isEqualTo("probe");
+        assertThat(guard.getState()).isEqualTo(CircuitState.CLOSED);
+    }
+
+    @Test
+    void clientErrorsDoNotOpenCircuit() {
+        for (int i = 0; i < 4; i++) {
+            assertThatThrownBy(() -> guard.execute(() -> {
+                throw HttpClientErrorException.create(HttpStatus.BAD_REQUEST, "", null, null, null);
+            })).isInstanceOf(HttpClientErrorException.class);
+        }
+
+        assertThat(guard.getState()).isEqualTo(CircuitState.CLOSED);
+    }
+
+    @Test
+    void resultsMarkedAsFailuresOpenCircuit() {
+        guard.execute(() -> 500, status -> status >= 500);
+        guard.execute(() -> 503, status -> status >= 500);
+
+        assertThat(guard.getState()).isEqualTo(CircuitState.OPEN);
+        assertThatThrownBy(() -> guard.execute(() -> 200)).isInstanceOf(CallRejectedException.class);
+    }
+
+    // асинхронный вызов занимает место в bulkhead, пока его результат не завершится
+    @Test
+    void asyncCallHoldsBulkheadUntilFutureCompletes() {
+        CompletableFuture<String> pending = new CompletableFuture<>();
+        CompletableFuture<String> first = guard.executeAsync(() -> pending);
+
+        assertThat(guard.executeAsync(() -> CompletableFuture.completedFuture("second")))
+                .failsWithin(Duration.ZERO)
+                .withThrowableOfType(Exception.class)
+                .withCauseInstanceOf(CallRejectedException.class);
+
+        pending.complete("first");
+        assertThat(first).isCompletedWithValue("first");
+        assertThat(guard.executeAsync(() -> CompletableFuture.completedFuture("third")))
+                .isCompletedWithValue("third");
+    }
+
+    @Test
+    void asyncFailuresOpenCircuit() {
+        for (int i = 0; i < 2; i++) {
+            guard.executeAsync(() -> CompletableFuture.failedFuture(new ResourceAccessException("timeout")));
+        }
+
+        assertThat(guard.getState()).isEqualTo(CircuitState.OPEN);
+        assertThat(guard.executeAsync(() -> CompletableFuture.completedFuture("rejected")))
+                .isCompletedExceptionally();
+    }
+
+    // отказы отправки хитов не размыкают цепь чтения просмотров
+    @Test
+    void hitsAndViewsGuardsAreIndependent() {
+        StatsCallGuards guards = new StatsCallGuards(
+                new DefaultListableBeanFactory().getBeanProvider(MeterRegistry.class),
+                50, 4, 2, OPEN_DURATION, 1, 1, Duration.ZERO);
+
+        for (int i = 0; i < 2; i++) {
+            assertThatThrownBy(() -> guards.getHits().execute(() -> {
+                throw new ResourceAccessException("timeout");
+            })).isInstanceOf(ResourceAccessException.class);
+        }
+
+        assertThat(guards.getHits().getState()).isEqualTo(CircuitState.OPEN);
+        assertThat(guards.getViews().getState()).isEqualTo(CircuitState.CLOSED);
+        assertThat(guards.getViews().execute(() -> "views")).isEqualTo("views");
+    }
+
+    private void openCircuit() {
+        for (int i = 0; i < 2; i++) {
+            assertThatThrownBy(() -> guard.execute(() -> {
+                throw new ResourceAccessException("timeout");
+            })).isInstanceOf(ResourceAccessException.class);
+        }
+        assertThat(guard.getState()).isEqualTo(CircuitState.OPEN);
+    }
+}
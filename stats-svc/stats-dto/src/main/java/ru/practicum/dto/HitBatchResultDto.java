@@ -0,0 +1,19 @@
+package ru.practicum.dto;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+// rejected — хиты пачки, пропущенные из-за некорректных полей; остальные сохранены
+@Builder
+@Getter
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@AllArgsConstructor
+@NoArgsConstructor
+public class HitBatchResultDto {
+    Integer accepted;
+    Integer rejected;
+}
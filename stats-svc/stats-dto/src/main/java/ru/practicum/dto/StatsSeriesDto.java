@@ -0,0 +1,30 @@
+package ru.practicum.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+import java.time.LocalDateTime;
+
+// ряд по колонкам: i-й бакет начинается в start + i * step, пустые бакеты содержат нули
+@Builder
+@Getter
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@AllArgsConstructor
+@NoArgsConstructor
+public class StatsSeriesDto {
+    String uri;
+
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss", shape = JsonFormat.Shape.STRING)
+    LocalDateTime start;
+
+    String step;
+
+    long[] hits;
+
+    long[] uniqueIps;
+}
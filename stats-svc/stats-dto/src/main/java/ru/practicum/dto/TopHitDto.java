@@ -0,0 +1,21 @@
+package ru.practicum.dto;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+// hits — верхняя граница числа хитов, hits - error — нижняя; у точного ответа error = 0
+@Builder
+@Getter
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@AllArgsConstructor
+@NoArgsConstructor
+public class TopHitDto {
+    String app;
+    String uri;
+    Long hits;
+    Long error;
+}
@@ -1,9 +1,11 @@
 package ru.practicum.server.controller;
 
+import jakarta.validation.Valid;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
@@ -11,18 +13,28 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 import ru.practicum.dto.EndpointHitDto;
+import ru.practicum.dto.HitBatchResultDto;
+import ru.practicum.dto.StatsQueryDto;
+import ru.practicum.dto.StatsSeriesDto;
+import ru.practicum.dto.TopHitDto;
 import ru.practicum.dto.ViewStatsDto;
+import ru.practicum.server.exception.ValidationException;
+import ru.practicum.server.model.RollupGranularity;
 import ru.practicum.server.service.StatsService;
+import ru.practicum.server.sketch.HyperLogLog;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequiredArgsConstructor
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
 public class StatsController {
     static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    static final String RELATIVE_ERROR_HEADER = "X-Stats-Relative-Error";
     StatsService statsService;
 
     @PostMapping(value = "/hit")
@@ -31,15 +43,97 @@ public class StatsController {
         return statsService.create(endpointHitDto);
     }
 
+    @PostMapping(value = "/hit/batch")
+    @ResponseStatus(HttpStatus.CREATED)
+    public HitBatchResultDto createAll(@RequestBody List<EndpointHitDto> endpointHitDtos) {
+        return statsService.createAll(endpointHitDtos);
+    }
+
     @GetMapping("/stats")
-    @ResponseStatus(HttpStatus.OK)
-    public List<ViewStatsDto> get(
+    public ResponseEntity<List<ViewStatsDto>> get(
             @RequestParam String start,
             @RequestParam String end,
             @RequestParam(required = false) List<String> uris,
-            @RequestParam(defaultValue = "false") Boolean unique) {
+            @RequestParam(defaultValue = "false") Boolean unique,
+            @RequestParam(defaultValue = "false") Boolean approximate) {
         LocalDateTime startDate = LocalDateTime.parse(start, formatter);
         LocalDateTime endDate = LocalDateTime.parse(end, formatter);
-        return statsService.get(startDate, endDate, uris, unique);
+        List<ViewStatsDto> stats = statsService.get(startDate, endDate, uris, unique, approximate);
+
+        // относительная ошибка приближённой оценки уникальных ip
+        if (unique && approximate) {
+            return ResponseEntity.ok()
+                    .header(RELATIVE_ERROR_HEADER, String.valueOf(HyperLogLog.RELATIVE_ERROR))
+                    .body(stats);
+        }
+        return ResponseEntity.ok(stats);
+    }
+
+    // то же, что GET /stats, но uri в теле запроса
+    @PostMapping("/stats/query")
+    public ResponseEntity<List<ViewStatsDto>> query(@Valid @RequestBody StatsQueryDto query) {
+        List<ViewStatsDto> stats = statsService.get(query.getStart(), query.getEnd(), query.getUris(),
+                query.isUnique(), query.isApproximate());
+
+        if (query.isUnique() && query.isApproximate()) {
+            return ResponseEntity.ok()
+                    .header(RELATIVE_ERROR_HEADER, String.valueOf(HyperLogLog.RELATIVE_ERROR))
+                    .body(stats);
+        }
+        return ResponseEntity.ok(stats);
+    }
+
+    // компактный ответ {"id события": хиты} вместо списка ViewStatsDto со строками uri
+    @GetMapping("/stats/events")
+    public ResponseEntity<Map<Long, Long>> getEventHits(
+            @RequestParam(required = false) String start,
+            @RequestParam(required = false) String end,
+            @RequestParam List<Long> ids,
+            @RequestParam(defaultValue = "false") boolean unique,
+            @RequestParam(defaultValue = "false") boolean approximate) {
+        // без start — за всё время, end не нужен
+        LocalDateTime startDate = start != null ? LocalDateTime.parse(start, formatter) : null;
+        LocalDateTime endDate = start != null && end != null ? LocalDateTime.parse(end, formatter) : null;
+        Map<Long, Long> hits = statsService.getEventHits(startDate, endDate, ids, unique, approximate);
+
+        if (unique && approximate) {
+            return ResponseEntity.ok()
+                    .header(RELATIVE_ERROR_HEADER, String.valueOf(HyperLogLog.RELATIVE_ERROR))
+                    .body(hits);
+        }
+        return ResponseEntity.ok(hits);
+    }
+
+    // без exact ответ приближённый, с границей ошибки в каждой строке
+    @GetMapping("/stats/top")
+    public List<TopHitDto> getTop(
+            @RequestParam(defaultValue = "10") int n,
+            @RequestParam(defaultValue = "PT1H") Duration window,
+            @RequestParam(defaultValue = "false") boolean exact) {
+        return statsService.getTop(n, window, exact);
+    }
+
+    // хиты и уникальные ip одного uri по бакетам 1m, 1h или 1d
+    @GetMapping("/stats/series")
+    public ResponseEntity<StatsSeriesDto> getSeries(
+            @RequestParam String uri,
+            @RequestParam String start,
+            @RequestParam String end,
+            @RequestParam(defaultValue = "1h") String bucket,
+            @RequestParam(defaultValue = "false") boolean approximate) {
+        RollupGranularity granularity = RollupGranularity.fromBucket(bucket);
+        if (granularity == null) {
+            throw new ValidationException("bucket must be one of 1m, 1h, 1d");
+        }
+        LocalDateTime startDate = LocalDateTime.parse(start, formatter);
+        LocalDateTime endDate = LocalDateTime.parse(end, formatter);
+        StatsSeriesDto series = statsService.getSeries(uri, startDate, endDate, granularity, approximate);
+
+        if (approximate && granularity.isSketched()) {
+            return ResponseEntity.ok()
+                    .header(RELATIVE_ERROR_HEADER, String.valueOf(HyperLogLog.RELATIVE_ERROR))
+                    .body(series);
+        }
+        return ResponseEntity.ok(series);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,90 @@
+package ru.practicum.server.mapper;
+
+import ru.practicum.server.exception.ValidationException;
+
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.regex.Pattern;
+
+// одна запись адреса для скетчей: IPv4 — десятичные октеты, IPv6 — сокращённая форма по RFC 5952
+public class IpAddressMapper {
+    static final Pattern IPV4 = Pattern.compile("\\d{1,3}(\\.\\d{1,3}){3}");
+    static final Pattern IPV6 = Pattern.compile("[0-9a-fA-F:.]*:[0-9a-fA-F:.]*");
+    static final int IPV6_GROUPS = 8;
+
+    public static String canonicalize(String ip) {
+        if (ip == null || ip.isBlank()) {
+            throw new ValidationException("ip cannot be blank");
+        }
+        if (IPV4.matcher(ip).matches()) {
+            return canonicalizeIpv4(ip);
+        }
+        // строку с двоеточием InetAddress разбирает только как литерал IPv6 и не ходит в DNS
+        if (IPV6.matcher(ip).matches()) {
+            try {
+                InetAddress address = InetAddress.getByName(ip);
+                // IPv4-mapped адрес InetAddress сам возвращает как IPv4
+                return address instanceof Inet6Address ? formatIpv6(address.getAddress()) : address.getHostAddress();
+            } catch (UnknownHostException e) {
+                throw new ValidationException("ip is not a valid address: " + ip);
+            }
+        }
+        throw new ValidationException("ip is not a valid address: " + ip);
+    }
+
+    private static String canonicalizeIpv4(String ip) {
+        String[] octets = ip.split("\\.");
+        StringBuilder result = new StringBuilder(ip.length());
+        for (String octet : octets) {
+            int value = Integer.parseInt(octet);
+            if (value > 255) {
+                throw new ValidationException("ip is not a valid address: " + ip);
+            }
+            if (!result.isEmpty()) {
+                result.append('.');
+            }
+            result.append(value);
+        }
+        return result.toString();
+    }
+
+    // самая длинная серия хотя бы из двух нулевых групп заменяется на "::"
+    private static String formatIpv6(byte[] bytes) {
+        int[] groups = new int[IPV6_GROUPS];
+        for (int i = 0; i < IPV6_GROUPS; i++) {
+            groups[i] = ((bytes[2 * i] & 0xff) << 8) | (bytes[2 * i + 1] & 0xff);
+        }
+
+        int bestStart = -1;
+        int bestLength = 1;
+        int runStart = -1;
+        for (int i = 0; i <= IPV6_GROUPS; i++) {
+            if (i < IPV6_GROUPS && groups[i] == 0) {
+                runStart = runStart < 0 ? i : runStart;
+            } else if (runStart >= 0) {
+                if (i - runStart > bestLength) {
+                    bestStart = runStart;
+                    bestLength = i - runStart;
+                }
+                runStart = -1;
+            }
+        }
+
+        StringBuilder result = new StringBuilder();
+        int i = 0;
+        while (i < IPV6_GROUPS) {
+            if (i == bestStart) {
+                result.append("::");
+                i += bestLength;
+                continue;
+            }
+            if (!result.isEmpty() && result.charAt(result.length() - 1) != ':') {
+                result.append(':');
+            }
+            result.append(Integer.toHexString(groups[i]));
+            i++;
+        }
+        return result.toString();
+    }
+}
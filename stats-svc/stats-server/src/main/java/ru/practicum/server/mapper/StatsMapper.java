@@ -1,6 +1,7 @@
 package ru.practicum.server.mapper;
 
 import ru.practicum.dto.EndpointHitDto;
+import ru.practicum.server.exception.ValidationException;
 import ru.practicum.server.model.Statistics;
 
 public class StatsMapper {
@@ -13,12 +14,26 @@ public class StatsMapper {
     }
 
     public static Statistics toStatistic(EndpointHitDto endpointHitDto) {
+        if (endpointHitDto == null) {
+            throw new ValidationException("hit cannot be null");
+        }
+        requireText(endpointHitDto.getApp(), "app");
+        requireText(endpointHitDto.getUri(), "uri");
+        if (endpointHitDto.getTimestamp() == null) {
+            throw new ValidationException("timestamp cannot be null");
+        }
         return Statistics.builder()
                 .id(null)
                 .app(endpointHitDto.getApp())
                 .uri(endpointHitDto.getUri())
-                .ip(endpointHitDto.getIp())
+                .ip(IpAddressMapper.canonicalize(endpointHitDto.getIp()))
                 .timestamp(endpointHitDto.getTimestamp())
                 .build();
     }
-}
\ No newline at end of file
+
+    private static void requireText(String value, String field) {
+        if (value == null || value.isBlank()) {
+            throw new ValidationException(field + " cannot be blank");
+        }
+    }
+}
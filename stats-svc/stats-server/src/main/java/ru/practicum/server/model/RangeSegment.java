@@ -0,0 +1,10 @@
+package ru.practicum.server.model;
+
+import java.time.LocalDateTime;
+
+// полуинтервал [start, end); granularity == null означает, что отрезок считается по сырым хитам
+public record RangeSegment(RollupGranularity granularity, LocalDateTime start, LocalDateTime end) {
+    public boolean isRaw() {
+        return granularity == null;
+    }
+}
@@ -0,0 +1,45 @@
+package ru.practicum.server.model;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+@Getter
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public enum ResourceType {
+    // uri вида /events/{id}
+    EVENT("/events/");
+
+    static final int MAX_ID_DIGITS = 18;
+
+    String uriPrefix;
+
+    // возвращает null, если uri не относится ни к одному известному ресурсу
+    public static ResourceRef parse(String uri) {
+        for (ResourceType type : values()) {
+            Long id = type.parseId(uri);
+            if (id != null) {
+                return new ResourceRef(type, id);
+            }
+        }
+        return null;
+    }
+
+    private Long parseId(String uri) {
+        int length = uri.length() - uriPrefix.length();
+        if (!uri.startsWith(uriPrefix) || length < 1 || length > MAX_ID_DIGITS) {
+            return null;
+        }
+        long id = 0;
+        for (int i = uriPrefix.length(); i < uri.length(); i++) {
+            char c = uri.charAt(i);
+            if (c < '0' || c > '9') {
+                return null;
+            }
+            id = id * 10 + (c - '0');
+        }
+        return id;
+    }
+}
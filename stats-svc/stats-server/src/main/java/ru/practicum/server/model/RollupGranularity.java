@@ -0,0 +1,42 @@
+package ru.practicum.server.model;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+@Getter
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public enum RollupGranularity {
+    // на минутных бакетах скетч уникальных ip не хранится: 1 КБ на строку для них слишком дорого
+    MINUTE(ChronoUnit.MINUTES, false, "1m"),
+    HOUR(ChronoUnit.HOURS, true, "1h"),
+    DAY(ChronoUnit.DAYS, true, "1d");
+
+    ChronoUnit unit;
+    boolean sketched;
+    String bucket;
+
+    // возвращает null для размеров бакета, которых нет среди агрегатов
+    public static RollupGranularity fromBucket(String bucket) {
+        for (RollupGranularity granularity : values()) {
+            if (granularity.bucket.equalsIgnoreCase(bucket)) {
+                return granularity;
+            }
+        }
+        return null;
+    }
+
+    public LocalDateTime floor(LocalDateTime dateTime) {
+        return dateTime.truncatedTo(unit);
+    }
+
+    public LocalDateTime ceil(LocalDateTime dateTime) {
+        LocalDateTime floor = floor(dateTime);
+        return floor.equals(dateTime) ? floor : floor.plus(1, unit);
+    }
+}
@@ -1,10 +1,5 @@
 package ru.practicum.server.model;
 
-import jakarta.persistence.Entity;
-import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.GenerationType;
-import jakarta.persistence.Id;
-import jakarta.persistence.Table;
 import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -15,20 +10,19 @@ import lombok.experimental.FieldDefaults;
 
 import java.time.LocalDateTime;
 
+// app и uri — ссылки на словари, ip — inet
 @Builder
-@Entity
 @Getter
 @Setter
-@Table(name = "statistics", schema = "public")
 @FieldDefaults(level = AccessLevel.PRIVATE)
 @NoArgsConstructor
 @AllArgsConstructor
 public class Statistics {
-    @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
     Long id;
     String app;
     String uri;
     String ip;
     LocalDateTime timestamp;
+    Integer appId;
+    Integer uriId;
 }
@@ -0,0 +1,4 @@
+package ru.practicum.server.model;
+
+public record StatsKey(int appId, int uriId) {
+}
@@ -0,0 +1,189 @@
+package ru.practicum.server.repository;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.server.model.ResourceRef;
+import ru.practicum.server.model.ResourceType;
+import ru.practicum.server.model.Statistics;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Repository
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class DictionaryRepository {
+    static final String FIND_RESOURCE_URIS = """
+            SELECT id, resource_id
+            FROM stats_uris
+            WHERE resource_type = ? AND resource_id = ANY(?)
+            """;
+
+    JdbcTemplate jdbcTemplate;
+    Dictionary apps;
+    Dictionary uris;
+
+    public DictionaryRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.apps = new Dictionary(jdbcTemplate, "stats_apps", false);
+        this.uris = new Dictionary(jdbcTemplate, "stats_uris", true);
+    }
+
+    // новые id попадают в кэш только после фиксации транзакции
+    public void encode(List<Statistics> hits) {
+        Map<String, Integer> appIds = apps.resolve(hits.stream().map(Statistics::getApp).toList(), true);
+        Map<String, Integer> uriIds = uris.resolve(hits.stream().map(Statistics::getUri).toList(), true);
+        for (Statistics hit : hits) {
+            hit.setAppId(appIds.get(hit.getApp()));
+            hit.setUriId(uriIds.get(hit.getUri()));
+        }
+    }
+
+    // uri, которых нет в словаре, ни разу не запрашивались и в результат не попадут
+    public Map<String, Integer> findUriIds(Collection<String> values) {
+        return uris.resolve(values, false);
+    }
+
+    // id uri ресурсов данного типа с id самих ресурсов
+    public Map<Integer, Long> findResourceUris(ResourceType type, Collection<Long> resourceIds) {
+        Map<Integer, Long> result = new HashMap<>();
+        jdbcTemplate.query(FIND_RESOURCE_URIS, ps -> {
+            ps.setString(1, type.name());
+            ps.setArray(2, ps.getConnection().createArrayOf("bigint", resourceIds.toArray()));
+        }, rs -> {
+            result.put(rs.getInt("id"), rs.getLong("resource_id"));
+        });
+        return result;
+    }
+
+    public Map<Integer, String> findAppNames(Collection<Integer> ids) {
+        return apps.decode(ids);
+    }
+
+    public Map<Integer, String> findUris(Collection<Integer> ids) {
+        return uris.decode(ids);
+    }
+
+    // словарь только растёт, поэтому значения кэшируются без вытеснения
+    @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+    static class Dictionary {
+        JdbcTemplate jdbcTemplate;
+        boolean parsesResources;
+        String insertSql;
+        String findByNameSql;
+        String findByIdSql;
+        Map<String, Integer> idsByName = new ConcurrentHashMap<>();
+        Map<Integer, String> namesById = new ConcurrentHashMap<>();
+
+        Dictionary(JdbcTemplate jdbcTemplate, String table, boolean parsesResources) {
+            this.jdbcTemplate = jdbcTemplate;
+            this.parsesResources = parsesResources;
+            // сортировка вставляемых значений исключает взаимные блокировки параллельных вставок
+            this.insertSql = parsesResources
+                    ? "INSERT INTO " + table + " (name, resource_type, resource_id) "
+                    + "SELECT * FROM unnest(?, ?, ?) AS t(name, resource_type, resource_id) ORDER BY name "
+                    + "ON CONFLICT (name) DO NOTHING"
+                    : "INSERT INTO " + table + " (name) SELECT name FROM unnest(?) AS name ORDER BY name "
+                    + "ON CONFLICT (name) DO NOTHING";
+            this.findByNameSql = "SELECT id, name FROM " + table + " WHERE name = ANY(?)";
+            this.findByIdSql = "SELECT id, name FROM " + table + " WHERE id = ANY(?)";
+        }
+
+        Map<String, Integer> resolve(Collection<String> values, boolean create) {
+            Map<String, Integer> result = new HashMap<>();
+            TreeSet<String> missing = new TreeSet<>();
+            for (String value : values) {
+                Integer id = idsByName.get(value);
+                if (id != null) {
+                    result.put(value, id);
+                } else {
+                    missing.add(value);
+                }
+            }
+            if (missing.isEmpty()) {
+                return result;
+            }
+
+            Object[] names = missing.toArray();
+            if (create) {
+                insert(names);
+            }
+            Map<String, Integer> found = new HashMap<>();
+            jdbcTemplate.query(findByNameSql, ps -> ps.setArray(1, ps.getConnection().createArrayOf("varchar", names)),
+                    rs -> {
+                        found.put(rs.getString("name"), rs.getInt("id"));
+                    });
+            result.putAll(found);
+
+            if (create && TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        found.forEach((name, id) -> remember(id, name));
+                    }
+                });
+            } else {
+                found.forEach((name, id) -> remember(id, name));
+            }
+            return result;
+        }
+
+        Map<Integer, String> decode(Collection<Integer> ids) {
+            Map<Integer, String> result = new HashMap<>();
+            TreeSet<Integer> missing = new TreeSet<>();
+            for (Integer id : ids) {
+                String name = namesById.get(id);
+                if (name != null) {
+                    result.put(id, name);
+                } else {
+                    missing.add(id);
+                }
+            }
+            if (missing.isEmpty()) {
+                return result;
+            }
+
+            Object[] missingIds = missing.toArray();
+            jdbcTemplate.query(findByIdSql, ps -> ps.setArray(1, ps.getConnection().createArrayOf("integer", missingIds)),
+                    rs -> {
+                        remember(rs.getInt("id"), rs.getString("name"));
+                        result.put(rs.getInt("id"), rs.getString("name"));
+                    });
+            return result;
+        }
+
+        // известные шаблоны uri разбираются один раз, при первом появлении uri в словаре
+        private void insert(Object[] names) {
+            if (!parsesResources) {
+                jdbcTemplate.update(insertSql, ps -> ps.setArray(1, ps.getConnection().createArrayOf("varchar", names)));
+                return;
+            }
+            Object[] types = new Object[names.length];
+            Object[] ids = new Object[names.length];
+            for (int i = 0; i < names.length; i++) {
+                ResourceRef resource = ResourceType.parse((String) names[i]);
+                if (resource != null) {
+                    types[i] = resource.type().name();
+                    ids[i] = resource.id();
+                }
+            }
+            jdbcTemplate.update(insertSql, ps -> {
+                ps.setArray(1, ps.getConnection().createArrayOf("varchar", names));
+                ps.setArray(2, ps.getConnection().createArrayOf("varchar", types));
+                ps.setArray(3, ps.getConnection().createArrayOf("bigint", ids));
+            });
+        }
+
+        private void remember(int id, String name) {
+            idsByName.put(name, id);
+            namesById.put(id, name);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package ru.practicum.server.repository;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.server.model.StatsKey;
+import ru.practicum.server.model.Statistics;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+@Repository
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class HitRepository {
+    static final String INSERT_HIT = "INSERT INTO statistics (timestamp, app_id, uri_id, ip) VALUES (?, ?, ?, ?::inet)";
+    static final String COUNT_UNIQUE_IPS = """
+            SELECT app_id, uri_id, COUNT(DISTINCT ip) AS hits
+            FROM statistics
+            WHERE timestamp BETWEEN ? AND ?
+            """;
+    static final String URIS_FILTER = " AND uri_id = ANY(?)";
+    static final String GROUP_BY = " GROUP BY app_id, uri_id";
+    static final int BATCH_SIZE = 1000;
+
+    JdbcTemplate jdbcTemplate;
+
+    // с reWriteBatchedInserts драйвер склеивает пачку в multi-row INSERT
+    public void saveAll(List<Statistics> hits) {
+        jdbcTemplate.batchUpdate(INSERT_HIT, hits, BATCH_SIZE, (ps, hit) -> {
+            ps.setTimestamp(1, Timestamp.valueOf(hit.getTimestamp()));
+            ps.setInt(2, hit.getAppId());
+            ps.setInt(3, hit.getUriId());
+            ps.setString(4, hit.getIp());
+        });
+    }
+
+    // точный подсчёт уникальных ip, группировка идёт по целочисленным ключам словарей
+    public void countUniqueIps(LocalDateTime start, LocalDateTime end, Collection<Integer> uriIds,
+                               Map<StatsKey, Long> hits) {
+        String sql = COUNT_UNIQUE_IPS + (uriIds != null ? URIS_FILTER : "") + GROUP_BY;
+        jdbcTemplate.query(sql, ps -> {
+            ps.setTimestamp(1, Timestamp.valueOf(start));
+            ps.setTimestamp(2, Timestamp.valueOf(end));
+            if (uriIds != null) {
+                ps.setArray(3, ps.getConnection().createArrayOf("integer", uriIds.toArray()));
+            }
+        }, rs -> {
+            hits.put(new StatsKey(rs.getInt("app_id"), rs.getInt("uri_id")), rs.getLong("hits"));
+        });
+    }
+}
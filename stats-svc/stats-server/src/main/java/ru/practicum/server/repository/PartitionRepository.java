@@ -0,0 +1,69 @@
+package ru.practicum.server.repository;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+@Repository
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class PartitionRepository {
+    public static final String PARENT_TABLE = "statistics";
+    public static final String PARTITION_PREFIX = PARENT_TABLE + "_p";
+    public static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.BASIC_ISO_DATE;
+    static final String DEFAULT_PARTITION = PARENT_TABLE + "_default";
+    static final String FIND_PARTITIONS = """
+            SELECT child.relname
+            FROM pg_inherits
+            JOIN pg_class parent ON parent.oid = pg_inherits.inhparent
+            JOIN pg_class child ON child.oid = pg_inherits.inhrelid
+            WHERE parent.relname = ? AND child.relname LIKE ?
+            """;
+
+    JdbcTemplate jdbcTemplate;
+
+    public List<String> findDailyPartitions() {
+        return jdbcTemplate.queryForList(FIND_PARTITIONS, String.class, PARENT_TABLE, PARTITION_PREFIX + "%");
+    }
+
+    // хиты дня из секции по умолчанию переносятся в новую секцию, иначе ATTACH не пройдёт
+    @Transactional
+    public void createDailyPartition(LocalDate day) {
+        String partition = partitionName(day);
+        String from = day.atStartOfDay().toString();
+        String to = day.plusDays(1).atStartOfDay().toString();
+
+        jdbcTemplate.execute("LOCK TABLE " + DEFAULT_PARTITION + " IN ACCESS EXCLUSIVE MODE");
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + partition
+                + " (LIKE " + PARENT_TABLE + " INCLUDING DEFAULTS INCLUDING CONSTRAINTS)");
+        jdbcTemplate.update("WITH moved AS (DELETE FROM " + DEFAULT_PARTITION
+                + " WHERE timestamp >= ?::timestamp AND timestamp < ?::timestamp RETURNING *) "
+                + "INSERT INTO " + partition + " SELECT * FROM moved", from, to);
+        jdbcTemplate.execute("ALTER TABLE " + PARENT_TABLE + " ATTACH PARTITION " + partition
+                + " FOR VALUES FROM ('" + from + "') TO ('" + to + "')");
+    }
+
+    // DROP секции не оставляет мёртвых строк, в отличие от DELETE
+    @Transactional
+    public void dropPartition(String partition) {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + partition);
+    }
+
+    // хиты за дни без своей секции удаляются обычным DELETE
+    @Transactional
+    public int deleteDefaultBefore(LocalDate day) {
+        return jdbcTemplate.update("DELETE FROM " + DEFAULT_PARTITION + " WHERE timestamp < ?::timestamp",
+                day.atStartOfDay().toString());
+    }
+
+    public static String partitionName(LocalDate day) {
+        return PARTITION_PREFIX + day.format(PARTITION_SUFFIX);
+    }
+}
@@ -0,0 +1,252 @@
+package ru.practicum.server.repository;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.stereotype.Repository;
+import ru.practicum.server.mapper.IpAddressMapper;
+import ru.practicum.server.model.RangeSegment;
+import ru.practicum.server.model.RollupGranularity;
+import ru.practicum.server.model.StatsKey;
+import ru.practicum.server.model.Statistics;
+import ru.practicum.server.sketch.HyperLogLog;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.ObjLongConsumer;
+
+@Repository
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class RollupRepository {
+    static final String UPSERT_ROLLUP = """
+            INSERT INTO statistics_rollup (granularity, bucket, app_id, uri_id, hits, ip_sketch)
+            VALUES (?, ?, ?, ?, ?, ?)
+            ON CONFLICT (granularity, bucket, app_id, uri_id) DO UPDATE
+            SET hits = statistics_rollup.hits + EXCLUDED.hits
+            """;
+    static final String LOCK_SKETCHES = """
+            SELECT r.granularity, r.bucket, r.app_id, r.uri_id, r.ip_sketch
+            FROM statistics_rollup r
+            JOIN unnest(?::varchar[], ?::timestamp[], ?::integer[], ?::integer[]) AS k (granularity, bucket, app_id, uri_id)
+                USING (granularity, bucket, app_id, uri_id)
+            FOR UPDATE OF r
+            """;
+    static final String UPDATE_SKETCH = """
+            UPDATE statistics_rollup
+            SET ip_sketch = ?
+            WHERE granularity = ? AND bucket = ? AND app_id = ? AND uri_id = ?
+            """;
+    static final String SUM_ROLLUP = """
+            SELECT app_id, uri_id, SUM(hits) AS hits
+            FROM statistics_rollup
+            WHERE granularity = ? AND bucket >= ? AND bucket < ?
+            """;
+    static final String COUNT_RAW = """
+            SELECT app_id, uri_id, COUNT(*) AS hits
+            FROM statistics
+            WHERE timestamp >= ? AND timestamp < ?
+            """;
+    static final String FIND_SKETCHES = """
+            SELECT app_id, uri_id, ip_sketch
+            FROM statistics_rollup
+            WHERE granularity = ? AND bucket >= ? AND bucket < ? AND ip_sketch IS NOT NULL
+            """;
+    static final String DISTINCT_RAW_IPS = """
+            SELECT DISTINCT app_id, uri_id, host(ip) AS ip
+            FROM statistics
+            WHERE timestamp >= ? AND timestamp < ?
+            """;
+    static final String SERIES_HITS = """
+            SELECT bucket, SUM(hits) AS hits
+            FROM statistics_rollup
+            WHERE granularity = ? AND bucket >= ? AND bucket < ? AND uri_id = ?
+            GROUP BY bucket
+            """;
+    static final String SERIES_SKETCHES = """
+            SELECT bucket, ip_sketch
+            FROM statistics_rollup
+            WHERE granularity = ? AND bucket >= ? AND bucket < ? AND uri_id = ? AND ip_sketch IS NOT NULL
+            ORDER BY bucket
+            """;
+    static final String SERIES_RAW_UNIQUE_IPS = """
+            SELECT date_trunc(?, timestamp) AS bucket, COUNT(DISTINCT ip) AS ips
+            FROM statistics
+            WHERE timestamp >= ? AND timestamp < ? AND uri_id = ?
+            GROUP BY 1
+            """;
+    static final String DELETE_BEFORE = "DELETE FROM statistics_rollup WHERE bucket < ?";
+    static final String URIS_FILTER = " AND uri_id = ANY(?)";
+    static final String GROUP_BY = " GROUP BY app_id, uri_id";
+    static final Comparator<RollupKey> KEY_ORDER = Comparator.comparing(RollupKey::granularity)
+            .thenComparing(RollupKey::bucket)
+            .thenComparingInt(RollupKey::appId)
+            .thenComparingInt(RollupKey::uriId);
+    static final SketchUpsert<RollupKey> SKETCH_UPSERT = new SketchUpsert<>(UPSERT_ROLLUP, LOCK_SKETCHES, UPDATE_SKETCH,
+            KEY_ORDER, new SketchUpsert.KeyColumns<>() {
+                @Override
+                public int bind(PreparedStatement ps, int index, RollupKey key) throws SQLException {
+                    ps.setString(index++, key.granularity().name());
+                    ps.setTimestamp(index++, Timestamp.valueOf(key.bucket()));
+                    ps.setInt(index++, key.appId());
+                    ps.setInt(index++, key.uriId());
+                    return index;
+                }
+
+                @Override
+                public void bindArrays(PreparedStatement ps, List<RollupKey> keys) throws SQLException {
+                    ps.setArray(1, ps.getConnection().createArrayOf("varchar",
+                            keys.stream().map(key -> key.granularity().name()).toArray()));
+                    ps.setArray(2, ps.getConnection().createArrayOf("timestamp",
+                            keys.stream().map(key -> Timestamp.valueOf(key.bucket())).toArray()));
+                    ps.setArray(3, ps.getConnection().createArrayOf("integer",
+                            keys.stream().map(RollupKey::appId).toArray()));
+                    ps.setArray(4, ps.getConnection().createArrayOf("integer",
+                            keys.stream().map(RollupKey::uriId).toArray()));
+                }
+
+                @Override
+                public RollupKey read(ResultSet rs) throws SQLException {
+                    return new RollupKey(RollupGranularity.valueOf(rs.getString("granularity")),
+                            rs.getTimestamp("bucket").toLocalDateTime(), rs.getInt("app_id"), rs.getInt("uri_id"));
+                }
+            });
+
+    JdbcTemplate jdbcTemplate;
+
+    public void increment(List<Statistics> hits) {
+        Map<RollupKey, Long> counters = new HashMap<>();
+        Map<RollupKey, HyperLogLog> sketches = new HashMap<>();
+        for (Statistics hit : hits) {
+            for (RollupGranularity granularity : RollupGranularity.values()) {
+                RollupKey key = new RollupKey(granularity, granularity.floor(hit.getTimestamp()),
+                        hit.getAppId(), hit.getUriId());
+                counters.merge(key, 1L, Long::sum);
+                if (granularity.isSketched()) {
+                    sketches.computeIfAbsent(key, k -> new HyperLogLog()).add(hit.getIp());
+                }
+            }
+        }
+
+        SKETCH_UPSERT.execute(jdbcTemplate, counters, sketches);
+    }
+
+    // бакеты всех гранулярностей режутся по полуночи без остатка
+    public int deleteBefore(LocalDateTime bucket) {
+        return jdbcTemplate.update(DELETE_BEFORE, Timestamp.valueOf(bucket));
+    }
+
+    public void countHits(RangeSegment segment, Collection<Integer> uriIds, Map<StatsKey, Long> hits) {
+        String sql = (segment.isRaw() ? COUNT_RAW : SUM_ROLLUP) + urisFilter(uriIds) + GROUP_BY;
+        jdbcTemplate.query(sql, segmentParameters(segment, uriIds), rs -> {
+            hits.merge(new StatsKey(rs.getInt("app_id"), rs.getInt("uri_id")), rs.getLong("hits"), Long::sum);
+        });
+    }
+
+    // для агрегатов объединяет сохранённые скетчи, для краёв — сырые ip
+    public void collectUniqueIps(RangeSegment segment, Collection<Integer> uriIds,
+                                 Map<StatsKey, HyperLogLog> sketches) {
+        if (segment.isRaw()) {
+            jdbcTemplate.query(DISTINCT_RAW_IPS + urisFilter(uriIds), segmentParameters(segment, uriIds), rs -> {
+                StatsKey key = new StatsKey(rs.getInt("app_id"), rs.getInt("uri_id"));
+                // та же запись ip, что и при приёме
+                String ip = IpAddressMapper.canonicalize(rs.getString("ip"));
+                sketches.computeIfAbsent(key, k -> new HyperLogLog()).add(ip);
+            });
+        } else {
+            jdbcTemplate.query(FIND_SKETCHES + urisFilter(uriIds), segmentParameters(segment, uriIds), rs -> {
+                StatsKey key = new StatsKey(rs.getInt("app_id"), rs.getInt("uri_id"));
+                HyperLogLog sketch = HyperLogLog.fromBytes(rs.getBytes("ip_sketch"));
+                sketches.merge(key, sketch, (current, added) -> {
+                    current.merge(added);
+                    return current;
+                });
+            });
+        }
+    }
+
+    // строки ряда сразу передаются потребителю, без промежуточного списка
+    public void streamSeriesHits(RollupGranularity granularity, LocalDateTime from, LocalDateTime to, int uriId,
+                                 ObjLongConsumer<LocalDateTime> consumer) {
+        jdbcTemplate.query(SERIES_HITS, seriesParameters(granularity.name(), from, to, uriId), rs -> {
+            consumer.accept(rs.getTimestamp("bucket").toLocalDateTime(), rs.getLong("hits"));
+        });
+    }
+
+    // строки отсортированы по бакету, так что в памяти держится один скетч
+    public void streamSeriesSketches(RollupGranularity granularity, LocalDateTime from, LocalDateTime to, int uriId,
+                                     BiConsumer<LocalDateTime, HyperLogLog> consumer) {
+        jdbcTemplate.query(SERIES_SKETCHES, seriesParameters(granularity.name(), from, to, uriId), rs -> {
+            LocalDateTime bucket = null;
+            HyperLogLog sketch = null;
+            while (rs.next()) {
+                LocalDateTime rowBucket = rs.getTimestamp("bucket").toLocalDateTime();
+                HyperLogLog rowSketch = HyperLogLog.fromBytes(rs.getBytes("ip_sketch"));
+                if (rowBucket.equals(bucket)) {
+                    sketch.merge(rowSketch);
+                    continue;
+                }
+                if (bucket != null) {
+                    consumer.accept(bucket, sketch);
+                }
+                bucket = rowBucket;
+                sketch = rowSketch;
+            }
+            if (bucket != null) {
+                consumer.accept(bucket, sketch);
+            }
+            return null;
+        });
+    }
+
+    // date_trunc принимает имя бакета в нижнем регистре
+    public void streamSeriesRawUniqueIps(RollupGranularity granularity, LocalDateTime from, LocalDateTime to, int uriId,
+                                         ObjLongConsumer<LocalDateTime> consumer) {
+        jdbcTemplate.query(SERIES_RAW_UNIQUE_IPS,
+                seriesParameters(granularity.name().toLowerCase(), from, to, uriId), rs -> {
+                    consumer.accept(rs.getTimestamp("bucket").toLocalDateTime(), rs.getLong("ips"));
+                });
+    }
+
+    private static PreparedStatementSetter seriesParameters(String granularity, LocalDateTime from,
+                                                            LocalDateTime to, int uriId) {
+        return ps -> {
+            ps.setString(1, granularity);
+            ps.setTimestamp(2, Timestamp.valueOf(from));
+            ps.setTimestamp(3, Timestamp.valueOf(to));
+            ps.setInt(4, uriId);
+        };
+    }
+
+    private static String urisFilter(Collection<Integer> uriIds) {
+        return uriIds != null ? URIS_FILTER : "";
+    }
+
+    private static PreparedStatementSetter segmentParameters(RangeSegment segment, Collection<Integer> uriIds) {
+        return ps -> {
+            int index = 1;
+            if (!segment.isRaw()) {
+                ps.setString(index++, segment.granularity().name());
+            }
+            ps.setTimestamp(index++, Timestamp.valueOf(segment.start()));
+            ps.setTimestamp(index++, Timestamp.valueOf(segment.end()));
+            if (uriIds != null) {
+                ps.setArray(index, ps.getConnection().createArrayOf("integer", uriIds.toArray()));
+            }
+        };
+    }
+
+    record RollupKey(RollupGranularity granularity, LocalDateTime bucket, int appId, int uriId) {
+    }
+}
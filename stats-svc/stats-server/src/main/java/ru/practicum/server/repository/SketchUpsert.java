@@ -0,0 +1,73 @@
+package ru.practicum.server.repository;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.server.sketch.HyperLogLog;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+// прибавляет счётчики и объединяет скетчи ip под блокировкой строк
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+class SketchUpsert<K> {
+    String upsertSql;
+    String lockSketchesSql;
+    String updateSketchSql;
+    Comparator<K> keyOrder;
+    KeyColumns<K> columns;
+
+    void execute(JdbcTemplate jdbcTemplate, Map<K, Long> hits, Map<K, HyperLogLog> sketches) {
+        // одинаковый порядок обновления строк в параллельных транзакциях исключает взаимные блокировки
+        List<K> keys = new ArrayList<>(hits.keySet());
+        keys.sort(keyOrder);
+
+        jdbcTemplate.batchUpdate(upsertSql, keys, keys.size(), (ps, key) -> {
+            HyperLogLog sketch = sketches.get(key);
+            int index = columns.bind(ps, 1, key);
+            ps.setLong(index++, hits.get(key));
+            ps.setBytes(index, sketch != null ? sketch.toBytes() : null);
+        });
+        mergeSketches(jdbcTemplate, sketches);
+    }
+
+    // переписываются только скетчи, в которых вырос регистр
+    private void mergeSketches(JdbcTemplate jdbcTemplate, Map<K, HyperLogLog> sketches) {
+        if (sketches.isEmpty()) {
+            return;
+        }
+        List<K> keys = new ArrayList<>(sketches.keySet());
+        keys.sort(keyOrder);
+
+        List<Map.Entry<K, HyperLogLog>> changed = new ArrayList<>();
+        jdbcTemplate.query(lockSketchesSql, ps -> columns.bindArrays(ps, keys), rs -> {
+            K key = columns.read(rs);
+            HyperLogLog stored = HyperLogLog.fromBytes(rs.getBytes("ip_sketch"));
+            if (stored.merge(sketches.get(key))) {
+                changed.add(Map.entry(key, stored));
+            }
+        });
+        changed.sort(Map.Entry.comparingByKey(keyOrder));
+
+        jdbcTemplate.batchUpdate(updateSketchSql, changed, changed.size(), (ps, entry) -> {
+            ps.setBytes(1, entry.getValue().toBytes());
+            columns.bind(ps, 2, entry.getKey());
+        });
+    }
+
+    interface KeyColumns<K> {
+        // возвращает индекс параметра, следующего за ключом
+        int bind(PreparedStatement ps, int index, K key) throws SQLException;
+
+        void bindArrays(PreparedStatement ps, List<K> keys) throws SQLException;
+
+        K read(ResultSet rs) throws SQLException;
+    }
+}
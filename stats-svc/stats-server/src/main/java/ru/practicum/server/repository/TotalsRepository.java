@@ -0,0 +1,151 @@
+package ru.practicum.server.repository;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.server.mapper.IpAddressMapper;
+import ru.practicum.server.model.StatsKey;
+import ru.practicum.server.sketch.HyperLogLog;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+@Repository
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class TotalsRepository {
+    static final String FIND_WATERMARK = "SELECT watermark FROM statistics_watermark WHERE id = 1";
+    static final String FIND_DATABASE_TIME = "SELECT LOCALTIMESTAMP";
+    static final String UPDATE_WATERMARK = "UPDATE statistics_watermark SET watermark = ? WHERE id = 1";
+    static final String UPSERT_TOTAL = """
+            INSERT INTO statistics_total (app_id, uri_id, hits, ip_sketch)
+            VALUES (?, ?, ?, ?)
+            ON CONFLICT (app_id, uri_id) DO UPDATE
+            SET hits = statistics_total.hits + EXCLUDED.hits
+            """;
+    static final String LOCK_SKETCHES = """
+            SELECT t.app_id, t.uri_id, t.ip_sketch
+            FROM statistics_total t
+            JOIN unnest(?::integer[], ?::integer[]) AS k (app_id, uri_id) USING (app_id, uri_id)
+            FOR UPDATE OF t
+            """;
+    static final String UPDATE_SKETCH = "UPDATE statistics_total SET ip_sketch = ? WHERE app_id = ? AND uri_id = ?";
+    static final String FIND_TOTALS = """
+            SELECT app_id, uri_id, hits, ip_sketch
+            FROM statistics_total
+            WHERE uri_id = ANY(?)
+            """;
+    static final String SCAN_RECEIVED_HITS = """
+            SELECT app_id, uri_id, host(ip) AS ip
+            FROM statistics
+            WHERE received_at >= ? AND received_at < ?
+            """;
+    static final String SCAN_HITS_AFTER_WATERMARK = """
+            SELECT app_id, uri_id, host(ip) AS ip
+            FROM statistics
+            WHERE received_at >= ? AND uri_id = ANY(?)
+            """;
+    static final Comparator<StatsKey> KEY_ORDER = Comparator.comparingInt(StatsKey::appId)
+            .thenComparingInt(StatsKey::uriId);
+    static final SketchUpsert<StatsKey> SKETCH_UPSERT = new SketchUpsert<>(UPSERT_TOTAL, LOCK_SKETCHES, UPDATE_SKETCH,
+            KEY_ORDER, new SketchUpsert.KeyColumns<>() {
+                @Override
+                public int bind(PreparedStatement ps, int index, StatsKey key) throws SQLException {
+                    ps.setInt(index++, key.appId());
+                    ps.setInt(index++, key.uriId());
+                    return index;
+                }
+
+                @Override
+                public void bindArrays(PreparedStatement ps, List<StatsKey> keys) throws SQLException {
+                    ps.setArray(1, ps.getConnection().createArrayOf("integer",
+                            keys.stream().map(StatsKey::appId).toArray()));
+                    ps.setArray(2, ps.getConnection().createArrayOf("integer",
+                            keys.stream().map(StatsKey::uriId).toArray()));
+                }
+
+                @Override
+                public StatsKey read(ResultSet rs) throws SQLException {
+                    return new StatsKey(rs.getInt("app_id"), rs.getInt("uri_id"));
+                }
+            });
+
+    JdbcTemplate jdbcTemplate;
+
+    public LocalDateTime findWatermark() {
+        return jdbcTemplate.queryForObject(FIND_WATERMARK, LocalDateTime.class);
+    }
+
+    // водяной знак сравнивается только с часами БД
+    public LocalDateTime findDatabaseTime() {
+        return jdbcTemplate.queryForObject(FIND_DATABASE_TIME, LocalDateTime.class);
+    }
+
+    // два экземпляра не перенесут одни и те же хиты дважды
+    public LocalDateTime lockWatermarkForAdvance() {
+        return jdbcTemplate.queryForObject(FIND_WATERMARK + " FOR UPDATE", LocalDateTime.class);
+    }
+
+    public void updateWatermark(LocalDateTime watermark) {
+        jdbcTemplate.update(UPDATE_WATERMARK, Timestamp.valueOf(watermark));
+    }
+
+    public void increment(Map<StatsKey, Long> hits, Map<StatsKey, HyperLogLog> sketches) {
+        SKETCH_UPSERT.execute(jdbcTemplate, hits, sketches);
+    }
+
+    public void collectTotals(Collection<Integer> uriIds, Map<StatsKey, Long> hits,
+                              Map<StatsKey, HyperLogLog> sketches) {
+        jdbcTemplate.query(FIND_TOTALS, ps -> ps.setArray(1, ps.getConnection().createArrayOf("integer", uriIds.toArray())),
+                rs -> {
+                    StatsKey key = new StatsKey(rs.getInt("app_id"), rs.getInt("uri_id"));
+                    hits.merge(key, rs.getLong("hits"), Long::sum);
+                    merge(sketches, key, HyperLogLog.fromBytes(rs.getBytes("ip_sketch")));
+                });
+    }
+
+    // хиты, принятые в [from, to)
+    public void collectReceivedHits(LocalDateTime from, LocalDateTime to,
+                                    Map<StatsKey, Long> hits, Map<StatsKey, HyperLogLog> sketches) {
+        jdbcTemplate.query(SCAN_RECEIVED_HITS, ps -> {
+            ps.setTimestamp(1, Timestamp.valueOf(from));
+            ps.setTimestamp(2, Timestamp.valueOf(to));
+        }, rs -> {
+            collect(rs.getInt("app_id"), rs.getInt("uri_id"), rs.getString("ip"), hits, sketches);
+        });
+    }
+
+    // хиты, ещё не перенесённые в итоги
+    public void collectHitsAfterWatermark(LocalDateTime watermark, Collection<Integer> uriIds,
+                                          Map<StatsKey, Long> hits, Map<StatsKey, HyperLogLog> sketches) {
+        jdbcTemplate.query(SCAN_HITS_AFTER_WATERMARK, ps -> {
+            ps.setTimestamp(1, Timestamp.valueOf(watermark));
+            ps.setArray(2, ps.getConnection().createArrayOf("integer", uriIds.toArray()));
+        }, rs -> {
+            collect(rs.getInt("app_id"), rs.getInt("uri_id"), rs.getString("ip"), hits, sketches);
+        });
+    }
+
+    private static void collect(int appId, int uriId, String ip,
+                                Map<StatsKey, Long> hits, Map<StatsKey, HyperLogLog> sketches) {
+        StatsKey key = new StatsKey(appId, uriId);
+        hits.merge(key, 1L, Long::sum);
+        sketches.computeIfAbsent(key, k -> new HyperLogLog()).add(IpAddressMapper.canonicalize(ip));
+    }
+
+    private static void merge(Map<StatsKey, HyperLogLog> sketches, StatsKey key, HyperLogLog sketch) {
+        sketches.merge(key, sketch, (current, added) -> {
+            current.merge(added);
+            return current;
+        });
+    }
+}
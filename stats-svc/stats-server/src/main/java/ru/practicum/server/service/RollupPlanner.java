@@ -0,0 +1,56 @@
+package ru.practicum.server.service;
+
+import ru.practicum.server.model.RangeSegment;
+import ru.practicum.server.model.RollupGranularity;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+public class RollupPlanner {
+    static final RollupGranularity[] ALL = {
+            RollupGranularity.DAY, RollupGranularity.HOUR, RollupGranularity.MINUTE
+    };
+    static final RollupGranularity[] SKETCHED = {
+            RollupGranularity.DAY, RollupGranularity.HOUR
+    };
+
+    // середина — крупные бакеты, края — мелкие, сырые хиты только на неполных минутах
+    public static List<RangeSegment> plan(LocalDateTime start, LocalDateTime end) {
+        return plan(start, end, ALL);
+    }
+
+    // только бакеты со скетчами, сырые края шириной до часа
+    public static List<RangeSegment> planSketched(LocalDateTime start, LocalDateTime end) {
+        return plan(start, end, SKETCHED);
+    }
+
+    private static List<RangeSegment> plan(LocalDateTime start, LocalDateTime end, RollupGranularity[] coarsestFirst) {
+        List<RangeSegment> segments = new ArrayList<>();
+        split(start, end, coarsestFirst, 0, segments);
+        return segments;
+    }
+
+    private static void split(LocalDateTime start, LocalDateTime end, RollupGranularity[] coarsestFirst, int level,
+                              List<RangeSegment> segments) {
+        if (!start.isBefore(end)) {
+            return;
+        }
+        if (level == coarsestFirst.length) {
+            segments.add(new RangeSegment(null, start, end));
+            return;
+        }
+
+        RollupGranularity granularity = coarsestFirst[level];
+        LocalDateTime alignedStart = granularity.ceil(start);
+        LocalDateTime alignedEnd = granularity.floor(end);
+
+        if (alignedStart.isBefore(alignedEnd)) {
+            split(start, alignedStart, coarsestFirst, level + 1, segments);
+            segments.add(new RangeSegment(granularity, alignedStart, alignedEnd));
+            split(alignedEnd, end, coarsestFirst, level + 1, segments);
+        } else {
+            split(start, end, coarsestFirst, level + 1, segments);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package ru.practicum.server.service;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.practicum.server.repository.PartitionRepository;
+import ru.practicum.server.repository.RollupRepository;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.HashSet;
+import java.util.Set;
+
+@Slf4j
+@Component
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class StatisticsPartitionManager {
+    PartitionRepository partitionRepository;
+    RollupRepository rollupRepository;
+    int daysAhead;
+    int retentionDays;
+
+    public StatisticsPartitionManager(PartitionRepository partitionRepository,
+                                      RollupRepository rollupRepository,
+                                      @Value("${stats.partitions.days-ahead:7}") int daysAhead,
+                                      @Value("${stats.partitions.retention-days:0}") int retentionDays) {
+        this.partitionRepository = partitionRepository;
+        this.rollupRepository = rollupRepository;
+        this.daysAhead = daysAhead;
+        this.retentionDays = retentionDays;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        maintain();
+    }
+
+    // секции на days-ahead дней вперёд, retention-days = 0 — хранить всё
+    @Scheduled(initialDelayString = "${stats.partitions.check-interval:PT1H}",
+            fixedDelayString = "${stats.partitions.check-interval:PT1H}")
+    public void maintain() {
+        LocalDate today = LocalDate.now();
+        LocalDate cutoff = today.minusDays(retentionDays);
+        Set<LocalDate> existing = new HashSet<>();
+        for (String partition : partitionRepository.findDailyPartitions()) {
+            LocalDate day = parseDay(partition);
+            if (day == null) {
+                continue;
+            }
+            if (retentionDays > 0 && day.isBefore(cutoff)) {
+                drop(partition);
+            } else {
+                existing.add(day);
+            }
+        }
+        if (retentionDays > 0) {
+            deleteExpired(cutoff);
+        }
+
+        for (LocalDate day = today; !day.isAfter(today.plusDays(daysAhead)); day = day.plusDays(1)) {
+            if (!existing.contains(day)) {
+                create(day);
+            }
+        }
+    }
+
+    private void create(LocalDate day) {
+        try {
+            partitionRepository.createDailyPartition(day);
+            log.info("Создана секция статистики {}", PartitionRepository.partitionName(day));
+        } catch (DataAccessException e) {
+            log.warn("Не удалось создать секцию статистики за {}: {}", day, e.getMessage());
+        }
+    }
+
+    private void drop(String partition) {
+        try {
+            partitionRepository.dropPartition(partition);
+            log.info("Удалена секция статистики {}", partition);
+        } catch (DataAccessException e) {
+            log.warn("Не удалось удалить секцию статистики {}: {}", partition, e.getMessage());
+        }
+    }
+
+    // агрегаты удаляются за те же дни, что и хиты; накопленные итоги не чистятся
+    private void deleteExpired(LocalDate cutoff) {
+        try {
+            int hits = partitionRepository.deleteDefaultBefore(cutoff);
+            int rollups = rollupRepository.deleteBefore(cutoff.atStartOfDay());
+            if (hits > 0 || rollups > 0) {
+                log.info("Удалены данные статистики до {}: хитов {}, агрегатов {}", cutoff, hits, rollups);
+            }
+        } catch (DataAccessException e) {
+            log.warn("Не удалось удалить данные статистики до {}: {}", cutoff, e.getMessage());
+        }
+    }
+
+    private static LocalDate parseDay(String partition) {
+        try {
+            return LocalDate.parse(partition.substring(PartitionRepository.PARTITION_PREFIX.length()),
+                    PartitionRepository.PARTITION_SUFFIX);
+        } catch (DateTimeParseException | IndexOutOfBoundsException e) {
+            return null;
+        }
+    }
+}
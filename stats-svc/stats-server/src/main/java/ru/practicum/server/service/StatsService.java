@@ -1,13 +1,31 @@
 package ru.practicum.server.service;
 
 import ru.practicum.dto.EndpointHitDto;
+import ru.practicum.dto.HitBatchResultDto;
+import ru.practicum.dto.StatsSeriesDto;
+import ru.practicum.dto.TopHitDto;
 import ru.practicum.dto.ViewStatsDto;
+import ru.practicum.server.model.RollupGranularity;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 public interface StatsService {
     EndpointHitDto create(EndpointHitDto endpointHitDto);
 
-    List<ViewStatsDto> get(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique);
-}
\ No newline at end of file
+    HitBatchResultDto createAll(List<EndpointHitDto> endpointHitDtos);
+
+    List<ViewStatsDto> get(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique,
+                           Boolean approximate);
+
+    Map<Long, Long> getEventHits(LocalDateTime start, LocalDateTime end, Collection<Long> eventIds, boolean unique,
+                                 boolean approximate);
+
+    List<TopHitDto> getTop(int n, Duration window, boolean exact);
+
+    StatsSeriesDto getSeries(String uri, LocalDateTime start, LocalDateTime end, RollupGranularity granularity,
+                             boolean approximate);
+}
@@ -1,61 +1,359 @@
 package ru.practicum.server.service;
 
 import lombok.AccessLevel;
-import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.practicum.dto.EndpointHitDto;
+import ru.practicum.dto.HitBatchResultDto;
+import ru.practicum.dto.StatsSeriesDto;
+import ru.practicum.dto.TopHitDto;
 import ru.practicum.dto.ViewStatsDto;
 import ru.practicum.server.exception.ValidationException;
-import ru.practicum.server.repository.StatsRepository;
+import ru.practicum.server.repository.DictionaryRepository;
+import ru.practicum.server.repository.HitRepository;
+import ru.practicum.server.repository.RollupRepository;
+import ru.practicum.server.repository.TotalsRepository;
 import ru.practicum.server.mapper.StatsMapper;
+import ru.practicum.server.model.RangeSegment;
+import ru.practicum.server.model.ResourceType;
+import ru.practicum.server.model.RollupGranularity;
+import ru.practicum.server.model.StatsKey;
 import ru.practicum.server.model.Statistics;
+import ru.practicum.server.sketch.HyperLogLog;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Service
-@RequiredArgsConstructor
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
 public class StatsServiceImpl implements StatsService {
-    StatsRepository statsRepository;
+    static final LocalDateTime HISTORY_START = LocalDateTime.of(1970, 1, 1, 0, 0);
+    static final LocalDateTime HISTORY_END = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+
+    DictionaryRepository dictionaryRepository;
+    HitRepository hitRepository;
+    RollupRepository rollupRepository;
+    TotalsRepository totalsRepository;
+    TopHittersTracker topHittersTracker;
+    TransactionTemplate lifetimeReads;
+    long endToleranceMillis;
+    int maxSeriesBuckets;
+    SingleFlight<QueryKey, List<ViewStatsDto>> statsFlights = new SingleFlight<>();
+    SingleFlight<QueryKey, Map<Long, Long>> eventHitsFlights = new SingleFlight<>();
+
+    public StatsServiceImpl(DictionaryRepository dictionaryRepository,
+                            HitRepository hitRepository,
+                            RollupRepository rollupRepository,
+                            TotalsRepository totalsRepository,
+                            TopHittersTracker topHittersTracker,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${stats.coalescing.end-tolerance:PT1S}") Duration endTolerance,
+                            @Value("${stats.series.max-buckets:10000}") int maxSeriesBuckets) {
+        this.dictionaryRepository = dictionaryRepository;
+        this.hitRepository = hitRepository;
+        this.rollupRepository = rollupRepository;
+        this.totalsRepository = totalsRepository;
+        this.topHittersTracker = topHittersTracker;
+        // итоги, водяной знак и хиты после него читаются из одного снимка
+        this.lifetimeReads = new TransactionTemplate(transactionManager);
+        this.lifetimeReads.setReadOnly(true);
+        this.lifetimeReads.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.endToleranceMillis = Math.max(1, endTolerance.toMillis());
+        this.maxSeriesBuckets = maxSeriesBuckets;
+    }
 
     @Override
-    @Transactional
+    @Transactional(timeoutString = "${stats.ingest.timeout-seconds:30}")
     public EndpointHitDto create(EndpointHitDto endpointHitDto) {
         Statistics statistics = StatsMapper.toStatistic(endpointHitDto);
-        Statistics savedStatistics = statsRepository.save(statistics);
-        return StatsMapper.toEndpointHitDto(savedStatistics);
+        save(List.of(statistics));
+        return StatsMapper.toEndpointHitDto(statistics);
     }
 
     @Override
-    @Transactional
-    public List<ViewStatsDto> get(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique) {
+    @Transactional(timeoutString = "${stats.ingest.timeout-seconds:30}")
+    public HitBatchResultDto createAll(List<EndpointHitDto> endpointHitDtos) {
+        // некорректный хит пропускается, а не отклоняет всю пачку
+        List<Statistics> statistics = new ArrayList<>(endpointHitDtos.size());
+        int rejected = 0;
+        for (EndpointHitDto endpointHitDto : endpointHitDtos) {
+            try {
+                statistics.add(StatsMapper.toStatistic(endpointHitDto));
+            } catch (ValidationException e) {
+                rejected++;
+            }
+        }
+        if (!statistics.isEmpty()) {
+            save(statistics);
+        }
+        return new HitBatchResultDto(statistics.size(), rejected);
+    }
+
+    // без транзакции: ожидающие общего результата вызовы не держат соединения из пула
+    @Override
+    public List<ViewStatsDto> get(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique,
+                                  Boolean approximate) {
         if (start.isAfter(end)) {
             throw new ValidationException("start cannot be after end");
         }
 
-        if (uris == null || uris.isEmpty()) {
-            return getStatsWithoutUris(start, end, unique);
-        } else {
-            return getStatsWithUris(start, end, uris, unique);
+        QueryKey key = new QueryKey(start, endBucket(end), uris != null ? List.copyOf(uris) : List.of(),
+                unique, approximate);
+        return statsFlights.execute(key, () -> computeStats(start, end, uris, unique, approximate));
+    }
+
+    @Override
+    public Map<Long, Long> getEventHits(LocalDateTime start, LocalDateTime end, Collection<Long> eventIds,
+                                        boolean unique, boolean approximate) {
+        if (start != null && end == null) {
+            throw new ValidationException("end is required with start");
+        }
+        if (start != null && start.isAfter(end)) {
+            throw new ValidationException("start cannot be after end");
         }
+        if (eventIds.isEmpty()) {
+            return Map.of();
+        }
+
+        QueryKey key = new QueryKey(start, start != null ? endBucket(end) : 0, List.copyOf(eventIds), unique,
+                approximate);
+        return eventHitsFlights.execute(key, () -> computeEventHits(start, end, eventIds, unique, approximate));
     }
 
-    private List<ViewStatsDto> getStatsWithoutUris(LocalDateTime start, LocalDateTime end, Boolean unique) {
-        if (unique) {
-            return statsRepository.findStatsWithUniqueIpNoUris(start, end);
-        } else {
-            return statsRepository.findStatsNoUniqueIpNoUris(start, end);
+    // если скетчи окно не покрывают или нужен точный ответ, хиты считаются по БД
+    @Override
+    public List<TopHitDto> getTop(int n, Duration window, boolean exact) {
+        if (n <= 0) {
+            throw new ValidationException("n must be positive");
+        }
+        if (window.isNegative() || window.isZero()) {
+            throw new ValidationException("window must be positive");
+        }
+
+        if (!exact) {
+            List<TopHittersTracker.TopHitter> top = topHittersTracker.findTop(n, window);
+            if (top != null) {
+                return toTopHits(top);
+            }
+        }
+
+        LocalDateTime end = LocalDateTime.now();
+        List<TopHittersTracker.TopHitter> top = countHits(end.minus(window), end, null, false).entrySet().stream()
+                .sorted(Map.Entry.<StatsKey, Long>comparingByValue().reversed())
+                .limit(n)
+                .map(entry -> new TopHittersTracker.TopHitter(entry.getKey(), entry.getValue(), 0))
+                .toList();
+        return toTopHits(top);
+    }
+
+    // целые бакеты агрегатов, покрывающие [start, end]
+    @Override
+    public StatsSeriesDto getSeries(String uri, LocalDateTime start, LocalDateTime end, RollupGranularity granularity,
+                                    boolean approximate) {
+        if (start.isAfter(end)) {
+            throw new ValidationException("start cannot be after end");
+        }
+        LocalDateTime from = granularity.floor(start);
+        LocalDateTime to = granularity.ceil(end.plus(1, ChronoUnit.MICROS));
+        long bucketCount = granularity.getUnit().between(from, to);
+        if (bucketCount > maxSeriesBuckets) {
+            throw new ValidationException("series cannot contain more than " + maxSeriesBuckets + " buckets");
+        }
+
+        long[] hits = new long[(int) bucketCount];
+        long[] uniqueIps = new long[(int) bucketCount];
+        Integer uriId = dictionaryRepository.findUriIds(List.of(uri)).get(uri);
+        if (uriId != null) {
+            ChronoUnit unit = granularity.getUnit();
+            rollupRepository.streamSeriesHits(granularity, from, to, uriId,
+                    (bucket, count) -> hits[(int) unit.between(from, bucket)] = count);
+            if (approximate && granularity.isSketched()) {
+                rollupRepository.streamSeriesSketches(granularity, from, to, uriId,
+                        (bucket, sketch) -> uniqueIps[(int) unit.between(from, bucket)] = sketch.estimate());
+            } else {
+                rollupRepository.streamSeriesRawUniqueIps(granularity, from, to, uriId,
+                        (bucket, count) -> uniqueIps[(int) unit.between(from, bucket)] = count);
+            }
+        }
+
+        return StatsSeriesDto.builder()
+                .uri(uri)
+                .start(from)
+                .step(granularity.getUnit().getDuration().toString())
+                .hits(hits)
+                .uniqueIps(uniqueIps)
+                .build();
+    }
+
+    // в итоги хиты переносит TotalsWatermarkAdvancer
+    private void save(List<Statistics> statistics) {
+        dictionaryRepository.encode(statistics);
+        hitRepository.saveAll(statistics);
+        rollupRepository.increment(statistics);
+        // откатившиеся хиты не должны попасть в скетчи самых частых uri
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                topHittersTracker.record(statistics);
+            }
+        });
+    }
+
+    // запросы с end в одном интервале end-tolerance получают результат, посчитанный по end первого
+    private long endBucket(LocalDateTime end) {
+        return Math.floorDiv(end.toInstant(ZoneOffset.UTC).toEpochMilli(), endToleranceMillis);
+    }
+
+    private List<ViewStatsDto> computeStats(LocalDateTime start, LocalDateTime end, List<String> uris,
+                                            boolean unique, boolean approximate) {
+        Collection<Integer> uriIds = null;
+        if (uris != null && !uris.isEmpty()) {
+            uriIds = dictionaryRepository.findUriIds(uris).values();
+            if (uriIds.isEmpty()) {
+                return List.of();
+            }
+        }
+
+        if (unique && approximate) {
+            Map<StatsKey, Long> hits = new HashMap<>();
+            collectUniqueIps(start, end, uriIds).forEach((key, sketch) -> hits.put(key, sketch.estimate()));
+            return toViewStats(hits);
+        }
+        return toViewStats(countHits(start, end, uriIds, unique));
+    }
+
+    // start == null — за всё время
+    private Map<Long, Long> computeEventHits(LocalDateTime start, LocalDateTime end, Collection<Long> eventIds,
+                                             boolean unique, boolean approximate) {
+        Map<Integer, Long> eventIdsByUriId = dictionaryRepository.findResourceUris(ResourceType.EVENT, eventIds);
+        if (eventIdsByUriId.isEmpty()) {
+            return Map.of();
         }
+
+        if (start == null) {
+            // точное число уникальных ip из накопленных итогов не получить, его считаем по всей истории
+            if (!unique || approximate) {
+                return lifetimeReads.execute(status -> computeLifetimeHits(eventIdsByUriId, unique));
+            }
+            return sumByEvent(countHits(HISTORY_START, HISTORY_END, eventIdsByUriId.keySet(), true), eventIdsByUriId);
+        }
+
+        if (unique && approximate) {
+            return estimateByEvent(collectUniqueIps(start, end, eventIdsByUriId.keySet()), eventIdsByUriId);
+        }
+        return sumByEvent(countHits(start, end, eventIdsByUriId.keySet(), unique), eventIdsByUriId);
+    }
+
+    // итоги до водяного знака плюс хиты после него
+    private Map<Long, Long> computeLifetimeHits(Map<Integer, Long> eventIdsByUriId, boolean unique) {
+        LocalDateTime watermark = totalsRepository.findWatermark();
+        Map<StatsKey, Long> hits = new HashMap<>();
+        Map<StatsKey, HyperLogLog> sketches = new HashMap<>();
+        totalsRepository.collectTotals(eventIdsByUriId.keySet(), hits, sketches);
+        totalsRepository.collectHitsAfterWatermark(watermark, eventIdsByUriId.keySet(), hits, sketches);
+        return unique ? estimateByEvent(sketches, eventIdsByUriId) : sumByEvent(hits, eventIdsByUriId);
+    }
+
+    private static Map<Long, Long> sumByEvent(Map<StatsKey, Long> hits, Map<Integer, Long> eventIdsByUriId) {
+        Map<Long, Long> result = new HashMap<>();
+        hits.forEach((key, count) -> result.merge(eventIdsByUriId.get(key.uriId()), count, Long::sum));
+        return result;
     }
 
-    private List<ViewStatsDto> getStatsWithUris(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique) {
+    // одно событие может прийти от нескольких приложений, их скетчи объединяются до оценки
+    private static Map<Long, Long> estimateByEvent(Map<StatsKey, HyperLogLog> sketches,
+                                                   Map<Integer, Long> eventIdsByUriId) {
+        Map<Long, HyperLogLog> byEvent = new HashMap<>();
+        sketches.forEach((key, sketch) ->
+                byEvent.merge(eventIdsByUriId.get(key.uriId()), sketch, (current, added) -> {
+                    current.merge(added);
+                    return current;
+                }));
+
+        Map<Long, Long> result = new HashMap<>();
+        byEvent.forEach((eventId, sketch) -> result.put(eventId, sketch.estimate()));
+        return result;
+    }
+
+    // уникальные ip по агрегатам не складываются
+    private Map<StatsKey, Long> countHits(LocalDateTime start, LocalDateTime end, Collection<Integer> uriIds,
+                                          boolean unique) {
+        Map<StatsKey, Long> hits = new HashMap<>();
         if (unique) {
-            return statsRepository.findStatsWithUrisWithUniqueIp(start, end, uris);
-        } else {
-            return statsRepository.findStatsWithUrisNoUniqueIp(start, end, uris);
+            hitRepository.countUniqueIps(start, end, uriIds, hits);
+            return hits;
+        }
+
+        // BETWEEN включает правую границу, а отрезки плана полуоткрытые
+        LocalDateTime endExclusive = end.plus(1, ChronoUnit.MICROS);
+        for (RangeSegment segment : RollupPlanner.plan(start, endExclusive)) {
+            rollupRepository.countHits(segment, uriIds, hits);
+        }
+        return hits;
+    }
+
+    // память на ключ ограничена размером скетча
+    private Map<StatsKey, HyperLogLog> collectUniqueIps(LocalDateTime start, LocalDateTime end,
+                                                        Collection<Integer> uriIds) {
+        LocalDateTime endExclusive = end.plus(1, ChronoUnit.MICROS);
+        Map<StatsKey, HyperLogLog> sketches = new HashMap<>();
+
+        for (RangeSegment segment : RollupPlanner.planSketched(start, endExclusive)) {
+            rollupRepository.collectUniqueIps(segment, uriIds, sketches);
         }
+        return sketches;
+    }
+
+    // строки словарей нужны только для строк ответа
+    private List<ViewStatsDto> toViewStats(Map<StatsKey, Long> hits) {
+        Set<Integer> appIds = new HashSet<>();
+        Set<Integer> uriIds = new HashSet<>();
+        hits.keySet().forEach(key -> {
+            appIds.add(key.appId());
+            uriIds.add(key.uriId());
+        });
+        Map<Integer, String> apps = dictionaryRepository.findAppNames(appIds);
+        Map<Integer, String> uris = dictionaryRepository.findUris(uriIds);
+
+        List<ViewStatsDto> result = new ArrayList<>(hits.size());
+        hits.forEach((key, count) -> result.add(new ViewStatsDto(apps.get(key.appId()), uris.get(key.uriId()), count)));
+        result.sort(Comparator.comparing(ViewStatsDto::getHits).reversed());
+        return result;
+    }
+
+    private List<TopHitDto> toTopHits(List<TopHittersTracker.TopHitter> top) {
+        Set<Integer> appIds = new HashSet<>();
+        Set<Integer> uriIds = new HashSet<>();
+        top.forEach(hitter -> {
+            appIds.add(hitter.key().appId());
+            uriIds.add(hitter.key().uriId());
+        });
+        Map<Integer, String> apps = dictionaryRepository.findAppNames(appIds);
+        Map<Integer, String> uris = dictionaryRepository.findUris(uriIds);
+
+        return top.stream()
+                .map(hitter -> new TopHitDto(apps.get(hitter.key().appId()), uris.get(hitter.key().uriId()),
+                        hitter.hits(), hitter.error()))
+                .toList();
+    }
+
+    record QueryKey(LocalDateTime start, long endBucket, List<?> filter, boolean unique, boolean approximate) {
     }
-}
\ No newline at end of file
+}
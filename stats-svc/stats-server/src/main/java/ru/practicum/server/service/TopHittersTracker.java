@@ -0,0 +1,127 @@
+package ru.practicum.server.service;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.server.model.StatsKey;
+import ru.practicum.server.model.Statistics;
+import ru.practicum.server.sketch.SpaceSaving;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+// скетч Space-Saving на интервал stats.top.bucket, только хиты этого экземпляра
+@Component
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class TopHittersTracker {
+    boolean enabled;
+    int capacity;
+    long bucketMillis;
+    Duration maxWindow;
+    Clock clock;
+    LocalDateTime startedAt;
+    ConcurrentSkipListMap<Long, SpaceSaving<StatsKey>> buckets = new ConcurrentSkipListMap<>();
+
+    @Autowired
+    public TopHittersTracker(@Value("${stats.top.in-memory:true}") boolean enabled,
+                             @Value("${stats.top.capacity:1000}") int capacity,
+                             @Value("${stats.top.bucket:PT1M}") Duration bucket,
+                             @Value("${stats.top.max-window:PT1H}") Duration maxWindow) {
+        this(enabled, capacity, bucket, maxWindow, Clock.systemDefaultZone());
+    }
+
+    // часы подменяются в тестах, чтобы раскладывать хиты по интервалам без ожидания
+    TopHittersTracker(boolean enabled, int capacity, Duration bucket, Duration maxWindow, Clock clock) {
+        this.enabled = enabled;
+        this.capacity = capacity;
+        this.bucketMillis = Math.max(1, bucket.toMillis());
+        this.maxWindow = maxWindow;
+        this.clock = clock;
+        this.startedAt = LocalDateTime.now(clock);
+    }
+
+    public void record(List<Statistics> hits) {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now(clock);
+        long oldest = bucketOf(now.minus(maxWindow));
+        long newest = bucketOf(now);
+
+        Map<Long, Map<StatsKey, Long>> counts = new HashMap<>();
+        for (Statistics hit : hits) {
+            long bucket = bucketOf(hit.getTimestamp());
+            // хиты из будущего и старше самого длинного окна в ответы всё равно не попадут
+            if (bucket >= oldest && bucket <= newest) {
+                counts.computeIfAbsent(bucket, b -> new HashMap<>())
+                        .merge(new StatsKey(hit.getAppId(), hit.getUriId()), 1L, Long::sum);
+            }
+        }
+
+        counts.forEach((bucket, keys) -> {
+            SpaceSaving<StatsKey> sketch = buckets.computeIfAbsent(bucket, b -> new SpaceSaving<>(capacity));
+            synchronized (sketch) {
+                keys.forEach(sketch::add);
+            }
+        });
+        buckets.headMap(oldest).clear();
+    }
+
+    // null, если окно скетчами не покрыто и ответ нужно считать по БД
+    public List<TopHitter> findTop(int n, Duration window) {
+        LocalDateTime now = LocalDateTime.now(clock);
+        LocalDateTime windowStart = now.minus(window);
+        if (!enabled || window.compareTo(maxWindow) > 0 || windowStart.isBefore(startedAt)) {
+            return null;
+        }
+
+        NavigableMap<Long, SpaceSaving<StatsKey>> inWindow = buckets.subMap(bucketOf(windowStart), true,
+                bucketOf(now), true);
+        // ключ, которого нет в скетче интервала, встретился там не больше missingBound раз
+        Map<StatsKey, long[]> bounds = new HashMap<>();
+        long missingBound = 0;
+        for (SpaceSaving<StatsKey> sketch : inWindow.values()) {
+            long sketchMissingBound;
+            List<SpaceSaving.Estimate<StatsKey>> estimates;
+            synchronized (sketch) {
+                sketchMissingBound = sketch.getMissingBound();
+                estimates = sketch.getEstimates();
+            }
+
+            missingBound += sketchMissingBound;
+            for (SpaceSaving.Estimate<StatsKey> estimate : estimates) {
+                long[] bound = bounds.computeIfAbsent(estimate.key(), key -> new long[2]);
+                bound[0] += estimate.count() - sketchMissingBound;
+                bound[1] += estimate.count() - estimate.error();
+            }
+        }
+
+        List<TopHitter> result = new ArrayList<>(bounds.size());
+        long totalMissingBound = missingBound;
+        bounds.forEach((key, bound) -> {
+            long upper = bound[0] + totalMissingBound;
+            result.add(new TopHitter(key, upper, upper - bound[1]));
+        });
+        result.sort(Comparator.comparingLong(TopHitter::hits).reversed());
+        return result.size() > n ? new ArrayList<>(result.subList(0, n)) : result;
+    }
+
+    private long bucketOf(LocalDateTime time) {
+        return Math.floorDiv(time.toInstant(ZoneOffset.UTC).toEpochMilli(), bucketMillis);
+    }
+
+    // hits — верхняя граница числа хитов, hits - error — нижняя
+    public record TopHitter(StatsKey key, long hits, long error) {
+    }
+}
@@ -0,0 +1,80 @@
+package ru.practicum.server.service;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.server.model.StatsKey;
+import ru.practicum.server.repository.TotalsRepository;
+import ru.practicum.server.sketch.HyperLogLog;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+@Slf4j
+@Component
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class TotalsWatermarkAdvancer {
+    TotalsRepository totalsRepository;
+    TransactionTemplate transactionTemplate;
+    Duration lag;
+    Duration maxStep;
+
+    public TotalsWatermarkAdvancer(TotalsRepository totalsRepository,
+                                   PlatformTransactionManager transactionManager,
+                                   @Value("${stats.totals.lag:PT1M}") Duration lag,
+                                   @Value("${stats.totals.max-step:PT1H}") Duration maxStep,
+                                   @Value("${stats.ingest.timeout-seconds:30}") int ingestTimeoutSeconds) {
+        if (lag.compareTo(Duration.ofSeconds(ingestTimeoutSeconds)) <= 0) {
+            throw new IllegalStateException("stats.totals.lag должен быть больше stats.ingest.timeout-seconds");
+        }
+        this.totalsRepository = totalsRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.lag = lag;
+        this.maxStep = maxStep;
+    }
+
+    // lag больше таймаута приёма, поэтому все хиты с received_at до now - lag уже зафиксированы
+    @Scheduled(initialDelayString = "${stats.totals.advance-interval:PT1M}",
+            fixedDelayString = "${stats.totals.advance-interval:PT1M}")
+    public void advance() {
+        try {
+            LocalDateTime target = totalsRepository.findDatabaseTime().minus(lag);
+            // после простоя догоняем шагами не длиннее max-step
+            Boolean isBehind;
+            do {
+                isBehind = transactionTemplate.execute(status -> advanceStep(target));
+            } while (Boolean.TRUE.equals(isBehind));
+        } catch (DataAccessException e) {
+            log.warn("Не удалось сдвинуть водяной знак накопленных итогов: {}", e.getMessage());
+        }
+    }
+
+    private boolean advanceStep(LocalDateTime target) {
+        LocalDateTime watermark = totalsRepository.lockWatermarkForAdvance();
+        if (!watermark.isBefore(target)) {
+            return false;
+        }
+
+        LocalDateTime stepEnd = watermark.plus(maxStep);
+        if (stepEnd.isAfter(target)) {
+            stepEnd = target;
+        }
+
+        Map<StatsKey, Long> hits = new HashMap<>();
+        Map<StatsKey, HyperLogLog> sketches = new HashMap<>();
+        totalsRepository.collectReceivedHits(watermark, stepEnd, hits, sketches);
+        if (!hits.isEmpty()) {
+            totalsRepository.increment(hits, sketches);
+        }
+        totalsRepository.updateWatermark(stepEnd);
+        return stepEnd.isBefore(target);
+    }
+}
@@ -0,0 +1,98 @@
+package ru.practicum.server.sketch;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+
+import java.nio.charset.StandardCharsets;
+
+// 2^10 однобайтовых регистров, объединение — поэлементный максимум
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class HyperLogLog {
+    public static final int PRECISION = 10;
+    public static final int REGISTERS = 1 << PRECISION;
+    public static final double RELATIVE_ERROR = 1.04 / Math.sqrt(REGISTERS);
+
+    static final double ALPHA = 0.7213 / (1 + 1.079 / REGISTERS);
+    static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    static final long FNV_PRIME = 0x100000001b3L;
+
+    byte[] registers;
+
+    public HyperLogLog() {
+        this.registers = new byte[REGISTERS];
+    }
+
+    private HyperLogLog(byte[] registers) {
+        this.registers = registers;
+    }
+
+    public static HyperLogLog fromBytes(byte[] bytes) {
+        if (bytes == null) {
+            return new HyperLogLog();
+        }
+        if (bytes.length != REGISTERS) {
+            throw new IllegalArgumentException("Некорректный размер скетча: " + bytes.length);
+        }
+        return new HyperLogLog(bytes.clone());
+    }
+
+    public void add(String value) {
+        long hash = hash(value);
+        int index = (int) (hash >>> (Long.SIZE - PRECISION));
+        // ведущие нули оставшихся бит; единица в младшем разряде ограничивает ранг
+        long remainder = (hash << PRECISION) | (1L << (PRECISION - 1));
+        byte rank = (byte) (Long.numberOfLeadingZeros(remainder) + 1);
+        if (rank > registers[index]) {
+            registers[index] = rank;
+        }
+    }
+
+    // true, если вырос хотя бы один регистр
+    public boolean merge(HyperLogLog other) {
+        boolean changed = false;
+        for (int i = 0; i < REGISTERS; i++) {
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    public long estimate() {
+        double sum = 0;
+        int zeroRegisters = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeroRegisters++;
+            }
+        }
+
+        double estimate = ALPHA * REGISTERS * REGISTERS / sum;
+        // на малых мощностях точнее линейный подсчёт по пустым регистрам
+        if (estimate <= 2.5 * REGISTERS && zeroRegisters > 0) {
+            estimate = REGISTERS * Math.log((double) REGISTERS / zeroRegisters);
+        }
+        return Math.round(estimate);
+    }
+
+    public byte[] toBytes() {
+        return registers.clone();
+    }
+
+    // FNV-1a по байтам строки с финальным перемешиванием из MurmurHash3
+    static long hash(String value) {
+        long hash = FNV_OFFSET_BASIS;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= FNV_PRIME;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
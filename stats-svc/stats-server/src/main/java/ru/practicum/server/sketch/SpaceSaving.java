@@ -0,0 +1,87 @@
+package ru.practicum.server.sketch;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+// не больше capacity счётчиков, новый ключ вытесняет минимальный и наследует его счёт как ошибку
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class SpaceSaving<K> {
+    static final Comparator<Counter<?>> BY_COUNT = Comparator.<Counter<?>>comparingLong(counter -> counter.count)
+            .thenComparingLong(counter -> counter.sequence);
+
+    final int capacity;
+    final Map<K, Counter<K>> counters = new HashMap<>();
+    final TreeSet<Counter<K>> byCount = new TreeSet<>(BY_COUNT);
+    long total;
+    long sequence;
+
+    public SpaceSaving(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Размер скетча должен быть положительным: " + capacity);
+        }
+        this.capacity = capacity;
+    }
+
+    public void add(K key, long count) {
+        total += count;
+        Counter<K> counter = counters.get(key);
+        if (counter != null) {
+            byCount.remove(counter);
+            counter.count += count;
+            counter.sequence = sequence++;
+            byCount.add(counter);
+            return;
+        }
+
+        long error = 0;
+        if (counters.size() >= capacity) {
+            Counter<K> evicted = byCount.pollFirst();
+            counters.remove(evicted.key);
+            error = evicted.count;
+        }
+        counter = new Counter<>(key, error + count, error, sequence++);
+        counters.put(key, counter);
+        byCount.add(counter);
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    // верхняя граница частоты любого ключа, которого нет в скетче
+    public long getMissingBound() {
+        return counters.size() < capacity ? 0 : byCount.first().count;
+    }
+
+    public List<Estimate<K>> getEstimates() {
+        List<Estimate<K>> estimates = new ArrayList<>(counters.size());
+        counters.values().forEach(counter -> estimates.add(new Estimate<>(counter.key, counter.count, counter.error)));
+        return estimates;
+    }
+
+    // count — верхняя граница частоты, count - error — нижняя
+    public record Estimate<K>(K key, long count, long error) {
+    }
+
+    @FieldDefaults(level = AccessLevel.PRIVATE)
+    static final class Counter<K> {
+        final K key;
+        long count;
+        final long error;
+        long sequence;
+
+        Counter(K key, long count, long error, long sequence) {
+            this.key = key;
+            this.count = count;
+            this.error = error;
+            this.sequence = sequence;
+        }
+    }
+}
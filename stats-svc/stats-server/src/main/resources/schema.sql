@@ -1,10 +1,65 @@
-DROP TABLE IF EXISTS statistics CASCADE;
+DROP TABLE IF EXISTS statistics, statistics_rollup, statistics_total, statistics_watermark, stats_apps, stats_uris CASCADE;
+DROP SEQUENCE IF EXISTS statistics_id_seq;
+DROP AGGREGATE IF EXISTS hll_union(BYTEA);
+DROP FUNCTION IF EXISTS hll_merge(BYTEA, BYTEA);
 
+CREATE SEQUENCE IF NOT EXISTS statistics_id_seq;
+
+CREATE TABLE IF NOT EXISTS stats_apps (
+id INTEGER GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
+name VARCHAR(255) NOT NULL UNIQUE
+);
+
+CREATE TABLE IF NOT EXISTS stats_uris (
+id INTEGER GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
+name VARCHAR(255) NOT NULL UNIQUE,
+resource_type VARCHAR(20),
+resource_id BIGINT
+);
+
+CREATE INDEX IF NOT EXISTS idx_stats_uris_resource ON stats_uris (resource_type, resource_id);
+
+-- дневные секции statistics_pYYYYMMDD ведёт StatisticsPartitionManager
 CREATE TABLE IF NOT EXISTS statistics (
-id BIGINT GENERATED BY DEFAULT AS IDENTITY NOT NULL,
-app VARCHAR(255) NOT NULL,
-uri VARCHAR(255) NOT NULL,
-ip VARCHAR(255) NOT NULL,
+id BIGINT NOT NULL DEFAULT nextval('statistics_id_seq'),
 timestamp TIMESTAMP NOT NULL,
-CONSTRAINT pk_statistics PRIMARY KEY (id)
-);
\ No newline at end of file
+app_id INTEGER NOT NULL,
+uri_id INTEGER NOT NULL,
+ip INET NOT NULL,
+-- время приёма по часам БД, по нему хиты переносятся в итоги
+received_at TIMESTAMP NOT NULL DEFAULT LOCALTIMESTAMP,
+CONSTRAINT pk_statistics PRIMARY KEY (id, timestamp)
+) PARTITION BY RANGE (timestamp);
+
+CREATE INDEX IF NOT EXISTS idx_statistics_received_at ON statistics (received_at);
+
+ALTER SEQUENCE statistics_id_seq OWNED BY statistics.id;
+
+CREATE TABLE IF NOT EXISTS statistics_default PARTITION OF statistics DEFAULT;
+
+CREATE TABLE IF NOT EXISTS statistics_rollup (
+granularity VARCHAR(10) NOT NULL,
+bucket TIMESTAMP NOT NULL,
+app_id INTEGER NOT NULL,
+uri_id INTEGER NOT NULL,
+hits BIGINT NOT NULL,
+ip_sketch BYTEA,
+CONSTRAINT pk_statistics_rollup PRIMARY KEY (granularity, bucket, app_id, uri_id)
+);
+
+-- итоги по хитам до водяного знака, не чистятся по retention-days
+CREATE TABLE IF NOT EXISTS statistics_total (
+app_id INTEGER NOT NULL,
+uri_id INTEGER NOT NULL,
+hits BIGINT NOT NULL,
+ip_sketch BYTEA NOT NULL,
+CONSTRAINT pk_statistics_total PRIMARY KEY (app_id, uri_id)
+);
+
+CREATE TABLE IF NOT EXISTS statistics_watermark (
+id SMALLINT PRIMARY KEY CHECK (id = 1),
+watermark TIMESTAMP NOT NULL
+);
+
+-- схема создаётся пустой, итоги не догоняют историю
+INSERT INTO statistics_watermark (id, watermark) VALUES (1, LOCALTIMESTAMP);
@@ -0,0 +1,94 @@
+package ru.practicum.server.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.practicum.dto.StatsQueryDto;
+import ru.practicum.dto.ViewStatsDto;
+import ru.practicum.server.service.StatsService;
+import ru.practicum.server.sketch.HyperLogLog;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(StatsController.class)
+class StatsControllerTest {
+    static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+    static final LocalDateTime END = LocalDateTime.of(2024, 1, 2, 0, 0);
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @MockBean
+    StatsService statsService;
+
+    @Test
+    void queryPassesBodyToService() throws Exception {
+        when(statsService.get(START, END, List.of("/events/1", "/events/2"), true, true))
+                .thenReturn(List.of(new ViewStatsDto("ewm", "/events/1", 3L)));
+
+        mockMvc.perform(post("/stats/query")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(StatsQueryDto.builder()
+                                .start(START)
+                                .end(END)
+                                .uris(List.of("/events/1", "/events/2"))
+                                .unique(true)
+                                .approximate(true)
+                                .build())))
+                .andExpect(status().isOk())
+                .andExpect(header().string(StatsController.RELATIVE_ERROR_HEADER,
+                        String.valueOf(HyperLogLog.RELATIVE_ERROR)))
+                .andExpect(jsonPath("$[0].uri").value("/events/1"))
+                .andExpect(jsonPath("$[0].hits").value(3));
+    }
+
+    @Test
+    void queryWithoutUrisReturnsExactStats() throws Exception {
+        when(statsService.get(START, END, null, false, false))
+                .thenReturn(List.of(new ViewStatsDto("ewm", "/events", 5L)));
+
+        mockMvc.perform(post("/stats/query")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(StatsQueryDto.builder()
+                                .start(START)
+                                .end(END)
+                                .build())))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(StatsController.RELATIVE_ERROR_HEADER))
+                .andExpect(jsonPath("$[0].hits").value(5));
+    }
+
+    @Test
+    void queryWithoutEndIsBadRequest() throws Exception {
+        mockMvc.perform(post("/stats/query")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(StatsQueryDto.builder()
+                                .start(START)
+                                .uris(List.of("/events/1"))
+                                .build())))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Ошибка валидации"))
+                .andExpect(jsonPath("$.description").value("end: end cannot be null"));
+
+        verify(statsService, never()).get(any(), any(), anyList(), anyBoolean(), anyBoolean());
+    }
+}
@@ -0,0 +1,41 @@
+package ru.practicum.server.mapper;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.server.exception.ValidationException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IpAddressMapperTest {
+
+    @Test
+    void canonicalizesEquivalentIpv6Forms() {
+        assertThat(IpAddressMapper.canonicalize("0:0:0:0:0:0:0:1")).isEqualTo("::1");
+        assertThat(IpAddressMapper.canonicalize("::1")).isEqualTo("::1");
+        assertThat(IpAddressMapper.canonicalize("2001:0DB8:0000:0000:0000:0000:0000:0001")).isEqualTo("2001:db8::1");
+        assertThat(IpAddressMapper.canonicalize("::")).isEqualTo("::");
+    }
+
+    @Test
+    void compressesLongestZeroRunOnly() {
+        assertThat(IpAddressMapper.canonicalize("2001:db8:0:0:1:0:0:0")).isEqualTo("2001:db8:0:0:1::");
+        assertThat(IpAddressMapper.canonicalize("2001:db8:0:0:1:0:0:1")).isEqualTo("2001:db8::1:0:0:1");
+        assertThat(IpAddressMapper.canonicalize("2001:db8:0:1:1:1:1:1")).isEqualTo("2001:db8:0:1:1:1:1:1");
+    }
+
+    @Test
+    void mapsIpv4MappedAddressToIpv4() {
+        assertThat(IpAddressMapper.canonicalize("::ffff:10.0.0.1")).isEqualTo("10.0.0.1");
+        assertThat(IpAddressMapper.canonicalize("010.000.000.001")).isEqualTo("10.0.0.1");
+    }
+
+    @Test
+    void rejectsMalformedAddresses() {
+        assertThatThrownBy(() -> IpAddressMapper.canonicalize("256.0.0.1")).isInstanceOf(ValidationException.class);
+        assertThatThrownBy(() -> IpAddressMapper.canonicalize("1.2.3")).isInstanceOf(ValidationException.class);
+        assertThatThrownBy(() -> IpAddressMapper.canonicalize("1::2::3")).isInstanceOf(ValidationException.class);
+        assertThatThrownBy(() -> IpAddressMapper.canonicalize("localhost")).isInstanceOf(ValidationException.class);
+        assertThatThrownBy(() -> IpAddressMapper.canonicalize(" ")).isInstanceOf(ValidationException.class);
+        assertThatThrownBy(() -> IpAddressMapper.canonicalize(null)).isInstanceOf(ValidationException.class);
+    }
+}
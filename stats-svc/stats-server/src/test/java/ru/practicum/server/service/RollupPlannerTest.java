@@ -0,0 +1,103 @@
+package ru.practicum.server.service;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import ru.practicum.server.model.RangeSegment;
+import ru.practicum.server.model.RollupGranularity;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static ru.practicum.server.model.RollupGranularity.DAY;
+import static ru.practicum.server.model.RollupGranularity.HOUR;
+import static ru.practicum.server.model.RollupGranularity.MINUTE;
+
+class RollupPlannerTest {
+
+    static Stream<Arguments> plans() {
+        return Stream.of(
+                Arguments.of("пустой диапазон", "2024-01-01T10:00", "2024-01-01T10:00", List.of()),
+                Arguments.of("целые сутки", "2024-01-01T00:00", "2024-01-03T00:00", List.of(
+                        segment(DAY, "2024-01-01T00:00", "2024-01-03T00:00"))),
+                Arguments.of("целые часы", "2024-01-01T10:00", "2024-01-01T13:00", List.of(
+                        segment(HOUR, "2024-01-01T10:00", "2024-01-01T13:00"))),
+                Arguments.of("меньше минуты", "2024-01-01T10:00:10", "2024-01-01T10:00:50", List.of(
+                        segment(null, "2024-01-01T10:00:10", "2024-01-01T10:00:50"))),
+                Arguments.of("меньше минуты от её начала", "2024-01-01T10:00", "2024-01-01T10:00:30", List.of(
+                        segment(null, "2024-01-01T10:00", "2024-01-01T10:00:30"))),
+                Arguments.of("через полночь", "2024-01-01T22:30", "2024-01-02T01:30", List.of(
+                        segment(MINUTE, "2024-01-01T22:30", "2024-01-01T23:00"),
+                        segment(HOUR, "2024-01-01T23:00", "2024-01-02T01:00"),
+                        segment(MINUTE, "2024-01-02T01:00", "2024-01-02T01:30"))),
+                Arguments.of("минуты через полночь", "2024-01-01T23:10", "2024-01-02T00:20", List.of(
+                        segment(MINUTE, "2024-01-01T23:10", "2024-01-02T00:20"))),
+                Arguments.of("невыровненные края", "2024-01-01T22:30:15", "2024-01-03T01:45:30", List.of(
+                        segment(null, "2024-01-01T22:30:15", "2024-01-01T22:31"),
+                        segment(MINUTE, "2024-01-01T22:31", "2024-01-01T23:00"),
+                        segment(HOUR, "2024-01-01T23:00", "2024-01-02T00:00"),
+                        segment(DAY, "2024-01-02T00:00", "2024-01-03T00:00"),
+                        segment(HOUR, "2024-01-03T00:00", "2024-01-03T01:00"),
+                        segment(MINUTE, "2024-01-03T01:00", "2024-01-03T01:45"),
+                        segment(null, "2024-01-03T01:45", "2024-01-03T01:45:30")))
+        );
+    }
+
+    static Stream<Arguments> sketchedPlans() {
+        return Stream.of(
+                Arguments.of("меньше часа", "2024-01-01T10:05", "2024-01-01T10:50", List.of(
+                        segment(null, "2024-01-01T10:05", "2024-01-01T10:50"))),
+                Arguments.of("часы по краям суток", "2024-01-01T22:00", "2024-01-03T02:00", List.of(
+                        segment(HOUR, "2024-01-01T22:00", "2024-01-02T00:00"),
+                        segment(DAY, "2024-01-02T00:00", "2024-01-03T00:00"),
+                        segment(HOUR, "2024-01-03T00:00", "2024-01-03T02:00"))),
+                Arguments.of("невыровненные края через полночь", "2024-01-01T22:30:15", "2024-01-02T01:45:30",
+                        List.of(
+                                segment(null, "2024-01-01T22:30:15", "2024-01-01T23:00"),
+                                segment(HOUR, "2024-01-01T23:00", "2024-01-02T01:00"),
+                                segment(null, "2024-01-02T01:00", "2024-01-02T01:45:30")))
+        );
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("plans")
+    void planCoversRangeExactlyOnce(String name, String start, String end, List<RangeSegment> expected) {
+        List<RangeSegment> segments = RollupPlanner.plan(LocalDateTime.parse(start), LocalDateTime.parse(end));
+
+        assertThat(segments).containsExactlyElementsOf(expected);
+        assertCoversExactlyOnce(segments, LocalDateTime.parse(start), LocalDateTime.parse(end));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("sketchedPlans")
+    void planSketchedUsesOnlySketchedBuckets(String name, String start, String end, List<RangeSegment> expected) {
+        List<RangeSegment> segments = RollupPlanner.planSketched(LocalDateTime.parse(start),
+                LocalDateTime.parse(end));
+
+        assertThat(segments).containsExactlyElementsOf(expected);
+        assertThat(segments).allMatch(segment -> segment.isRaw() || segment.granularity().isSketched());
+        assertCoversExactlyOnce(segments, LocalDateTime.parse(start), LocalDateTime.parse(end));
+    }
+
+    // отрезки идут подряд без пропусков и наложений, агрегаты выровнены по своим бакетам
+    private static void assertCoversExactlyOnce(List<RangeSegment> segments, LocalDateTime start,
+                                                LocalDateTime end) {
+        LocalDateTime covered = start;
+        for (RangeSegment segment : segments) {
+            assertThat(segment.start()).isEqualTo(covered);
+            assertThat(segment.start()).isBefore(segment.end());
+            if (!segment.isRaw()) {
+                assertThat(segment.granularity().floor(segment.start())).isEqualTo(segment.start());
+                assertThat(segment.granularity().floor(segment.end())).isEqualTo(segment.end());
+            }
+            covered = segment.end();
+        }
+        assertThat(covered).isEqualTo(end);
+    }
+
+    private static RangeSegment segment(RollupGranularity granularity, String start, String end) {
+        return new RangeSegment(granularity, LocalDateTime.parse(start), LocalDateTime.parse(end));
+    }
+}
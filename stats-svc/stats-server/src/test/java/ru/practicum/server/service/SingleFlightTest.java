@@ -0,0 +1,123 @@
+package ru.practicum.server.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightTest {
+    final SingleFlight<String, Integer> flights = new SingleFlight<>();
+    final AtomicInteger computations = new AtomicInteger();
+    final CountDownLatch release = new CountDownLatch(1);
+
+    @Test
+    void concurrentCallersWithSameKeyShareOneComputation() throws InterruptedException {
+        AtomicReference<Integer> leaderResult = new AtomicReference<>();
+        AtomicReference<Integer> waiterResult = new AtomicReference<>();
+
+        Thread leader = Thread.ofVirtual().start(() -> leaderResult.set(flights.execute("key", () -> blocking(42))));
+        awaitComputations(1);
+        Thread waiter = Thread.ofVirtual().start(() -> waiterResult.set(flights.execute("key", () -> blocking(7))));
+        awaitWaiting(waiter);
+        release.countDown();
+        leader.join();
+        waiter.join();
+
+        assertThat(computations).hasValue(1);
+        assertThat(leaderResult).hasValue(42);
+        assertThat(waiterResult).hasValue(42);
+    }
+
+    // ошибка вычисления достаётся и запустившему его вызову, и всем ожидавшим
+    @Test
+    void failurePropagatesToLeaderAndWaiters() throws InterruptedException {
+        IllegalStateException failure = new IllegalStateException("БД недоступна");
+        AtomicReference<Throwable> leaderError = new AtomicReference<>();
+        AtomicReference<Throwable> waiterError = new AtomicReference<>();
+
+        Thread leader = Thread.ofVirtual().start(() -> leaderError.set(catchError(() -> flights.execute("key", () -> {
+            blocking(0);
+            throw failure;
+        }))));
+        awaitComputations(1);
+        Thread waiter = Thread.ofVirtual().start(() -> waiterError.set(catchError(() ->
+                flights.execute("key", () -> blocking(7)))));
+        awaitWaiting(waiter);
+        release.countDown();
+        leader.join();
+        waiter.join();
+
+        assertThat(computations).hasValue(1);
+        assertThat(leaderError).hasValue(failure);
+        assertThat(waiterError).hasValue(failure);
+    }
+
+    // после завершения следующий вызов считает заново
+    @Test
+    void keyIsReleasedAfterSuccess() {
+        release.countDown();
+
+        assertThat(flights.execute("key", () -> blocking(1))).isEqualTo(1);
+        assertThat(flights.execute("key", () -> blocking(2))).isEqualTo(2);
+        assertThat(computations).hasValue(2);
+    }
+
+    @Test
+    void keyIsReleasedAfterFailure() {
+        release.countDown();
+
+        assertThatThrownBy(() -> flights.execute("key", () -> {
+            throw new IllegalStateException("сбой");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(flights.execute("key", () -> blocking(2))).isEqualTo(2);
+    }
+
+    @Test
+    void differentKeysDoNotWaitForEachOther() throws InterruptedException {
+        Thread leader = Thread.ofVirtual().start(() -> flights.execute("slow", () -> blocking(1)));
+        awaitComputations(1);
+
+        assertThat(flights.execute("other", () -> 2)).isEqualTo(2);
+        release.countDown();
+        leader.join();
+    }
+
+    private Integer blocking(int value) {
+        computations.incrementAndGet();
+        try {
+            assertThat(release.await(10, TimeUnit.SECONDS)).isTrue();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+        return value;
+    }
+
+    private void awaitComputations(int expected) throws InterruptedException {
+        while (computations.get() < expected) {
+            Thread.sleep(1);
+        }
+    }
+
+    // лишнее вычисление видно по их числу
+    private static void awaitWaiting(Thread thread) throws InterruptedException {
+        while (thread.getState() != Thread.State.WAITING) {
+            Thread.sleep(1);
+        }
+    }
+
+    private static Throwable catchError(Runnable call) {
+        try {
+            call.run();
+            return null;
+        } catch (RuntimeException e) {
+            return e;
+        }
+    }
+}
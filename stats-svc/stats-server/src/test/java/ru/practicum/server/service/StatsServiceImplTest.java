@@ -0,0 +1,88 @@
+package ru.practicum.server.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.dto.EndpointHitDto;
+import ru.practicum.dto.HitBatchResultDto;
+import ru.practicum.server.model.Statistics;
+import ru.practicum.server.repository.DictionaryRepository;
+import ru.practicum.server.repository.HitRepository;
+import ru.practicum.server.repository.RollupRepository;
+import ru.practicum.server.repository.TotalsRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class StatsServiceImplTest {
+    final DictionaryRepository dictionaryRepository = mock(DictionaryRepository.class);
+    final HitRepository hitRepository = mock(HitRepository.class);
+    final RollupRepository rollupRepository = mock(RollupRepository.class);
+    final StatsServiceImpl statsService = new StatsServiceImpl(dictionaryRepository, hitRepository, rollupRepository,
+            mock(TotalsRepository.class), mock(TopHittersTracker.class), mock(PlatformTransactionManager.class),
+            Duration.ofSeconds(1), 10_000);
+
+    // приём идёт в транзакции: после коммита хиты попадают в скетчи /stats/top
+    @BeforeEach
+    void setUp() {
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    @Test
+    void batchSkipsInvalidHitsAndSavesTheRest() {
+        HitBatchResultDto result = statsService.createAll(Arrays.asList(
+                hit("/events/1", "10.0.0.1"),
+                hit("/events/2", "not an ip"),
+                null,
+                hit(" ", "10.0.0.2"),
+                hit("/events/3", "::ffff:10.0.0.3")));
+
+        assertThat(result.getAccepted()).isEqualTo(2);
+        assertThat(result.getRejected()).isEqualTo(3);
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Statistics>> saved = ArgumentCaptor.forClass(List.class);
+        verify(hitRepository).saveAll(saved.capture());
+        assertThat(saved.getValue())
+                .extracting(Statistics::getUri, Statistics::getIp)
+                .containsExactly(
+                        tuple("/events/1", "10.0.0.1"),
+                        tuple("/events/3", "10.0.0.3"));
+        verify(rollupRepository).increment(saved.getValue());
+    }
+
+    @Test
+    void batchWithoutValidHitsWritesNothing() {
+        HitBatchResultDto result = statsService.createAll(List.of(hit("/events/1", "999.1.1.1")));
+
+        assertThat(result.getAccepted()).isZero();
+        assertThat(result.getRejected()).isEqualTo(1);
+        verify(dictionaryRepository, never()).encode(any());
+        verify(hitRepository, never()).saveAll(any());
+    }
+
+    private static EndpointHitDto hit(String uri, String ip) {
+        return EndpointHitDto.builder()
+                .app("ewm-main-service")
+                .uri(uri)
+                .ip(ip)
+                .timestamp(LocalDateTime.of(2026, 1, 1, 12, 0))
+                .build();
+    }
+}
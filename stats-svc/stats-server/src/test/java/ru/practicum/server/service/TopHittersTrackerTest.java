@@ -0,0 +1,167 @@
+package ru.practicum.server.service;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.server.model.StatsKey;
+import ru.practicum.server.model.Statistics;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TopHittersTrackerTest {
+    static final LocalDateTime STARTED_AT = LocalDateTime.of(2026, 1, 1, 12, 0);
+    static final StatsKey A = new StatsKey(1, 1);
+    static final StatsKey B = new StatsKey(1, 2);
+    static final StatsKey C = new StatsKey(1, 3);
+
+    final MutableClock clock = new MutableClock(STARTED_AT);
+
+    // счёт ключа в окне — сумма счетов по интервалам
+    @Test
+    void mergesCountsAcrossMinuteBuckets() {
+        TopHittersTracker tracker = tracker(true, 10);
+        clock.set(STARTED_AT.plusMinutes(5));
+        tracker.record(hits(STARTED_AT.plusMinutes(1), A, A, A, B));
+        tracker.record(hits(STARTED_AT.plusMinutes(2), A, A, C, C, C, C));
+        tracker.record(hits(STARTED_AT.plusMinutes(4), B, B, B, B, B));
+
+        assertThat(tracker.findTop(3, Duration.ofMinutes(5))).containsExactly(
+                new TopHittersTracker.TopHitter(B, 6, 0),
+                new TopHittersTracker.TopHitter(A, 5, 0),
+                new TopHittersTracker.TopHitter(C, 4, 0));
+        assertThat(tracker.findTop(1, Duration.ofMinutes(5))).hasSize(1);
+    }
+
+    // окно округляется до целых интервалов
+    @Test
+    void countsOnlyBucketsInWindow() {
+        TopHittersTracker tracker = tracker(true, 10);
+        clock.set(STARTED_AT.plusMinutes(5).plusSeconds(30));
+        tracker.record(hits(STARTED_AT.plusMinutes(2), A, A, A));
+        tracker.record(hits(STARTED_AT.plusMinutes(3), B));
+        tracker.record(hits(STARTED_AT.plusMinutes(5), C, C));
+
+        assertThat(tracker.findTop(10, Duration.ofMinutes(2))).containsExactly(
+                new TopHittersTracker.TopHitter(C, 2, 0),
+                new TopHittersTracker.TopHitter(B, 1, 0));
+    }
+
+    // истинный счёт ключа лежит в [hits - error, hits]
+    @Test
+    void mergedBoundsContainExactCountsWhenSketchesEvict() {
+        TopHittersTracker tracker = tracker(true, 4);
+        clock.set(STARTED_AT.plusMinutes(10));
+        Map<StatsKey, Long> exact = new HashMap<>();
+        Random random = new Random(7);
+        for (int minute = 0; minute < 10; minute++) {
+            List<Statistics> hits = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                StatsKey key = new StatsKey(1, (int) Math.floor(Math.pow(20, random.nextDouble())));
+                hits.add(hit(STARTED_AT.plusMinutes(minute), key));
+                exact.merge(key, 1L, Long::sum);
+            }
+            tracker.record(hits);
+        }
+
+        List<TopHittersTracker.TopHitter> top = tracker.findTop(20, Duration.ofMinutes(10));
+
+        assertThat(top).isNotEmpty();
+        top.forEach(hitter -> assertThat(exact.getOrDefault(hitter.key(), 0L))
+                .isBetween(hitter.hits() - hitter.error(), hitter.hits()));
+        StatsKey mostFrequent = exact.entrySet().stream()
+                .max(Map.Entry.comparingByValue())
+                .orElseThrow()
+                .getKey();
+        assertThat(top).extracting(TopHittersTracker.TopHitter::key).contains(mostFrequent);
+    }
+
+    @Test
+    void ignoresHitsOlderThanMaxWindow() {
+        TopHittersTracker tracker = tracker(true, 10);
+        clock.set(STARTED_AT.plusHours(2));
+        tracker.record(hits(STARTED_AT.plusMinutes(30), A));
+        tracker.record(hits(STARTED_AT.plusMinutes(90), B));
+
+        assertThat(tracker.findTop(10, Duration.ofHours(1))).containsExactly(
+                new TopHittersTracker.TopHitter(B, 1, 0));
+    }
+
+    // окна, которые скетчи не покрывают, считаются по БД
+    @Test
+    void returnsNullWhenWindowIsNotCovered() {
+        TopHittersTracker tracker = tracker(true, 10);
+        clock.set(STARTED_AT.plusMinutes(30));
+
+        assertThat(tracker.findTop(10, Duration.ofMinutes(31))).isNull();
+        assertThat(tracker.findTop(10, Duration.ofMinutes(30))).isEmpty();
+
+        clock.set(STARTED_AT.plusHours(3));
+        assertThat(tracker.findTop(10, Duration.ofHours(2))).isNull();
+    }
+
+    @Test
+    void returnsNullWhenDisabled() {
+        TopHittersTracker tracker = tracker(false, 10);
+        clock.set(STARTED_AT.plusMinutes(5));
+        tracker.record(hits(STARTED_AT.plusMinutes(1), A));
+
+        assertThat(tracker.findTop(10, Duration.ofMinutes(1))).isNull();
+    }
+
+    private TopHittersTracker tracker(boolean enabled, int capacity) {
+        return new TopHittersTracker(enabled, capacity, Duration.ofMinutes(1), Duration.ofHours(1), clock);
+    }
+
+    private static List<Statistics> hits(LocalDateTime timestamp, StatsKey... keys) {
+        List<Statistics> hits = new ArrayList<>(keys.length);
+        for (StatsKey key : keys) {
+            hits.add(hit(timestamp, key));
+        }
+        return hits;
+    }
+
+    private static Statistics hit(LocalDateTime timestamp, StatsKey key) {
+        return Statistics.builder()
+                .appId(key.appId())
+                .uriId(key.uriId())
+                .timestamp(timestamp)
+                .build();
+    }
+
+    static final class MutableClock extends Clock {
+        Instant instant;
+
+        MutableClock(LocalDateTime time) {
+            set(time);
+        }
+
+        void set(LocalDateTime time) {
+            instant = time.toInstant(ZoneOffset.UTC);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package ru.practicum.server.sketch;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.data.Percentage.withPercentage;
+
+class HyperLogLogTest {
+
+    // при p = 10 стандартная ошибка около 3,25 %, три сигмы — меньше 10 %
+    @ParameterizedTest
+    @ValueSource(ints = {100, 1_000, 10_000, 100_000, 1_000_000})
+    void estimatesWithinThreeStandardErrors(int cardinality) {
+        HyperLogLog sketch = new HyperLogLog();
+        for (int i = 0; i < cardinality; i++) {
+            sketch.add(ip(i));
+        }
+
+        assertThat((double) sketch.estimate())
+                .isCloseTo(cardinality, withPercentage(300 * HyperLogLog.RELATIVE_ERROR));
+    }
+
+    @Test
+    void ignoresRepeatedValues() {
+        HyperLogLog sketch = new HyperLogLog();
+        for (int repeat = 0; repeat < 10; repeat++) {
+            for (int i = 0; i < 1_000; i++) {
+                sketch.add(ip(i));
+            }
+        }
+
+        HyperLogLog once = new HyperLogLog();
+        for (int i = 0; i < 1_000; i++) {
+            once.add(ip(i));
+        }
+        assertThat(sketch.toBytes()).isEqualTo(once.toBytes());
+    }
+
+    @Test
+    void emptySketchEstimatesZero() {
+        assertThat(new HyperLogLog().estimate()).isZero();
+        assertThat(HyperLogLog.fromBytes(null).estimate()).isZero();
+    }
+
+    @Test
+    void roundTripsThroughBytes() {
+        HyperLogLog sketch = new HyperLogLog();
+        for (int i = 0; i < 5_000; i++) {
+            sketch.add(ip(i));
+        }
+
+        byte[] bytes = sketch.toBytes();
+        HyperLogLog restored = HyperLogLog.fromBytes(bytes);
+
+        assertThat(bytes).hasSize(HyperLogLog.REGISTERS);
+        assertThat(restored.toBytes()).isEqualTo(bytes);
+        assertThat(restored.estimate()).isEqualTo(sketch.estimate());
+        // скетч не разделяет массив с вызывающим кодом
+        bytes[0]++;
+        assertThat(restored.toBytes()).isNotEqualTo(bytes);
+    }
+
+    @Test
+    void rejectsBytesOfWrongSize() {
+        assertThatThrownBy(() -> HyperLogLog.fromBytes(new byte[HyperLogLog.REGISTERS - 1]))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void mergeEqualsSketchOfUnion() {
+        HyperLogLog left = new HyperLogLog();
+        HyperLogLog right = new HyperLogLog();
+        HyperLogLog union = new HyperLogLog();
+        for (int i = 0; i < 20_000; i++) {
+            (i % 3 == 0 ? left : right).add(ip(i));
+            union.add(ip(i));
+        }
+        // пересечение: часть значений есть в обоих скетчах
+        for (int i = 0; i < 5_000; i++) {
+            left.add(ip(i));
+        }
+
+        assertThat(left.merge(right)).isTrue();
+        assertThat(left.toBytes()).isEqualTo(union.toBytes());
+    }
+
+    @Test
+    void mergeReportsWhetherAnyRegisterGrew() {
+        HyperLogLog sketch = new HyperLogLog();
+        HyperLogLog subset = new HyperLogLog();
+        for (int i = 0; i < 1_000; i++) {
+            sketch.add(ip(i));
+            if (i % 2 == 0) {
+                subset.add(ip(i));
+            }
+        }
+
+        assertThat(sketch.merge(subset)).isFalse();
+        assertThat(subset.merge(sketch)).isTrue();
+        assertThat(subset.merge(sketch)).isFalse();
+    }
+
+    private static String ip(int i) {
+        return "10." + ((i >>> 16) & 0xff) + "." + ((i >>> 8) & 0xff) + "." + (i & 0xff);
+    }
+}
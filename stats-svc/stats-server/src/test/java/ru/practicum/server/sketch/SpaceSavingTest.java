@@ -0,0 +1,82 @@
+package ru.practicum.server.sketch;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SpaceSavingTest {
+
+    @Test
+    void countsExactlyWhileKeysFitCapacity() {
+        SpaceSaving<String> sketch = new SpaceSaving<>(3);
+        sketch.add("a", 5);
+        sketch.add("b", 2);
+        sketch.add("a", 1);
+
+        assertThat(sketch.getEstimates()).containsExactlyInAnyOrder(
+                new SpaceSaving.Estimate<>("a", 6, 0),
+                new SpaceSaving.Estimate<>("b", 2, 0));
+        assertThat(sketch.getTotal()).isEqualTo(8);
+        assertThat(sketch.getMissingBound()).isZero();
+    }
+
+    // новый ключ вытесняет минимальный и наследует его счёт как ошибку
+    @Test
+    void evictedCountBecomesErrorOfNewKey() {
+        SpaceSaving<String> sketch = new SpaceSaving<>(2);
+        sketch.add("a", 5);
+        sketch.add("b", 2);
+        sketch.add("c", 1);
+
+        assertThat(sketch.getEstimates()).containsExactlyInAnyOrder(
+                new SpaceSaving.Estimate<>("a", 5, 0),
+                new SpaceSaving.Estimate<>("c", 3, 2));
+        assertThat(sketch.getMissingBound()).isEqualTo(3);
+    }
+
+    // истинная частота лежит в [count - error, count], частые ключи не теряются
+    @Test
+    void boundsHoldOnSkewedStream() {
+        int capacity = 50;
+        SpaceSaving<Integer> sketch = new SpaceSaving<>(capacity);
+        Map<Integer, Long> exact = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            // частота ключа k убывает примерно как 1 / k
+            int key = (int) Math.floor(Math.pow(1_000, random.nextDouble()));
+            sketch.add(key, 1);
+            exact.merge(key, 1L, Long::sum);
+        }
+
+        long total = sketch.getTotal();
+        Map<Integer, SpaceSaving.Estimate<Integer>> estimates = sketch.getEstimates().stream()
+                .collect(Collectors.toMap(SpaceSaving.Estimate::key, Function.identity()));
+        assertThat(total).isEqualTo(100_000);
+        assertThat(estimates).hasSize(capacity);
+        estimates.values().forEach(estimate -> {
+            long actual = exact.get(estimate.key());
+            assertThat(actual).isBetween(estimate.count() - estimate.error(), estimate.count());
+            assertThat(estimate.error()).isLessThanOrEqualTo(total / capacity);
+        });
+        exact.forEach((key, actual) -> {
+            if (actual > total / capacity) {
+                assertThat(estimates).containsKey(key);
+            }
+            if (!estimates.containsKey(key)) {
+                assertThat(actual).isLessThanOrEqualTo(sketch.getMissingBound());
+            }
+        });
+    }
+
+    @Test
+    void rejectsNonPositiveCapacity() {
+        assertThatThrownBy(() -> new SpaceSaving<>(0)).isInstanceOf(IllegalArgumentException.class);
+    }
+}